@@ -0,0 +1,54 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.benchmark;
+
+import net.ymate.module.oauth.IOAuth;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 访问凭证校验基准测试, 执行与SnsAccessTokenCheckInterceptor相同的校验步骤
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/05/27 下午3:55
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccessResourceBenchmark {
+
+    private static boolean __check(OAuthEnv env, int index) throws Exception {
+        IOAuth.IOAuthAccessResourceHelper _resourceHelper = env.oauth.bindAccessResourceHelper(env.accessTokens[index], env.openIds[index]);
+        return _resourceHelper.checkAccessToken()
+                && !_resourceHelper.isExpiredAccessToken()
+                && _resourceHelper.checkScope(IOAuth.Scope.SNSAPI_USERINFO);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean checkAccessToken(OAuthEnv env, ThreadCursor cursor) throws Exception {
+        return __check(env, cursor.next(OAuthEnv.USER_COUNT));
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean checkAccessTokenContended(OAuthEnv env, ThreadCursor cursor) throws Exception {
+        return __check(env, cursor.next(OAuthEnv.USER_COUNT));
+    }
+}
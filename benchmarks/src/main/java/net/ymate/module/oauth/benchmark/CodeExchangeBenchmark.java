@@ -0,0 +1,47 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.benchmark;
+
+import net.ymate.module.oauth.OAuthSnsToken;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 授权码换取访问凭证基准测试(包含授权码签发), 每次调用均会更新对应用户的令牌记录
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/05/27 下午4:10
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodeExchangeBenchmark {
+
+    @Benchmark
+    @Threads(1)
+    public OAuthSnsToken exchange(OAuthEnv env, ThreadCursor cursor) throws Exception {
+        return env.authorizeAndExchange(env.uids[cursor.next(OAuthEnv.USER_COUNT)]);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public OAuthSnsToken exchangeContended(OAuthEnv env, ThreadCursor cursor) throws Exception {
+        return env.authorizeAndExchange(env.uids[cursor.next(OAuthEnv.USER_COUNT)]);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.benchmark;
+
+import net.ymate.module.oauth.*;
+import net.ymate.platform.core.YMP;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * 基准测试运行环境: 启动YMP框架及OAuth模块(使用内存存储适配器), 通过模块接口注册测试应用并预先为一组用户签发访问凭证
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/05/27 下午3:10
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+public class OAuthEnv {
+
+    public static final String CLIENT_ID = "benchmark_client";
+
+    public static final String CLIENT_SECRET = "benchmark_secret";
+
+    public static final String REDIRECT_URI = "http://localhost/oauth2/callback";
+
+    public static final int USER_COUNT = 1024;
+
+    public IOAuth oauth;
+
+    public String[] uids;
+
+    public String[] accessTokens;
+
+    public String[] openIds;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        YMP.get().init();
+        oauth = OAuth.get();
+        //
+        OAuthClient _client = new OAuthClient();
+        _client.setId(CLIENT_ID);
+        _client.setSecretKey(CLIENT_SECRET);
+        _client.setTitle("Benchmark");
+        _client.setDomain("localhost");
+        _client.setCreateTime(System.currentTimeMillis());
+        _client.setLastModifyTime(_client.getCreateTime());
+        // 令牌存储适配器须支持维护应用信息(如: 默认的InMemoryStorageAdapter)
+        oauth.registerClient(_client);
+        //
+        uids = new String[USER_COUNT];
+        accessTokens = new String[USER_COUNT];
+        openIds = new String[USER_COUNT];
+        for (int _idx = 0; _idx < USER_COUNT; _idx++) {
+            uids[_idx] = "user_" + _idx;
+            OAuthSnsToken _token = authorizeAndExchange(uids[_idx]);
+            accessTokens[_idx] = _token.getAccessToken();
+            openIds[_idx] = _token.getOpenId();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        YMP.get().destroy();
+    }
+
+    /**
+     * 执行完整的授权码模式流程: 签发授权码并使用授权码换取访问凭证
+     *
+     * @param uid 用户主键
+     * @return 返回访问凭证
+     * @throws Exception 可能产生的任何异常
+     */
+    public OAuthSnsToken authorizeAndExchange(String uid) throws Exception {
+        OAuthCode _code = oauth.bindAuthzHelper(CLIENT_ID, uid).createOrUpdateAuthCode(REDIRECT_URI, IOAuth.Scope.SNSAPI_USERINFO);
+        IOAuth.IOAuthTokenHelper _tokenHelper = oauth.bindTokenHelper(CLIENT_ID, CLIENT_SECRET, _code.getCode());
+        if (!_tokenHelper.checkClientId() || !_tokenHelper.checkClientSecret() || !_tokenHelper.checkAuthCode()) {
+            throw new IllegalStateException("Authorization code exchange failed for user " + uid);
+        }
+        return _tokenHelper.createOrUpdateAccessToken();
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.benchmark;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 线程私有的循环游标, 使各测试线程依次访问不同的用户数据
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/05/27 下午3:25
+ * @version 1.0
+ */
+@State(Scope.Thread)
+public class ThreadCursor {
+
+    private int __index = (int) (Thread.currentThread().getId() * 31);
+
+    /**
+     * @param bound 上界(不包含)
+     * @return 返回下一个位置
+     */
+    public int next(int bound) {
+        __index = (__index + 1) % bound;
+        return __index;
+    }
+}
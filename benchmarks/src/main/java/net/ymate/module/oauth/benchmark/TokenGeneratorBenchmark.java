@@ -0,0 +1,72 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.benchmark;
+
+import net.ymate.module.oauth.IOAuthTokenGenerator;
+import net.ymate.module.oauth.impl.DefaultTokenGenerator;
+import net.ymate.module.oauth.impl.SecureRandomTokenGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 令牌生成器基准测试
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/05/27 下午3:40
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenGeneratorBenchmark {
+
+    private IOAuthTokenGenerator __defaultGenerator;
+
+    private IOAuthTokenGenerator __secureRandomGenerator;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        __defaultGenerator = new DefaultTokenGenerator();
+        __secureRandomGenerator = new SecureRandomTokenGenerator();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String defaultAccessToken() throws Exception {
+        return __defaultGenerator.accessToken();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String defaultAccessTokenContended() throws Exception {
+        return __defaultGenerator.accessToken();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String secureRandomAccessToken() throws Exception {
+        return __secureRandomGenerator.accessToken();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String secureRandomAccessTokenContended() throws Exception {
+        return __secureRandomGenerator.accessToken();
+    }
+}
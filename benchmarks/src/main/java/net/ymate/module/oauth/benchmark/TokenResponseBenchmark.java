@@ -0,0 +1,108 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.benchmark;
+
+import net.ymate.module.oauth.IOAuth;
+import net.ymate.module.oauth.OAuthSnsToken;
+import net.ymate.module.oauth.support.TokenResponseWriter;
+import org.apache.oltu.oauth2.as.response.OAuthASResponse;
+import org.apache.oltu.oauth2.common.message.OAuthResponse;
+import org.openjdk.jmh.annotations.*;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 访问凭证响应报文构建基准测试, 对比OAuthController中基于Oltu构建器及流式写入器两种方式;
+ * 两种方式均将响应报文字节写入每线程复用的输出流, 与控制器写入响应输出流的路径一致
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/05/27 下午4:20
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenResponseBenchmark {
+
+    private static final int EXPIRES_IN = 7200;
+
+    private OAuthSnsToken __token;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        long _now = System.currentTimeMillis();
+        __token = new OAuthSnsToken(OAuthEnv.CLIENT_ID, "8a4e3b0c2f6d4e1a9b7c5d3e1f0a2b4c", "user_0", true, IOAuth.Scope.SNSAPI_USERINFO,
+                "d41d8cd98f00b204e9800998ecf8427e", null, "0cc175b9c0f1b6a831c399e269772661", 0, EXPIRES_IN, _now, _now);
+    }
+
+    /**
+     * 每线程复用的输出流, 模拟响应输出流
+     */
+    @State(Scope.Thread)
+    public static class Sink {
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream(512);
+    }
+
+    private int __build(Sink sink) throws Exception {
+        OAuthResponse _response = OAuthASResponse.tokenResponse(HttpServletResponse.SC_OK)
+                .setAccessToken(__token.getAccessToken())
+                .setExpiresIn(String.valueOf(EXPIRES_IN))
+                .setRefreshToken(__token.getRefreshToken())
+                .setScope(__token.getScope())
+                .setParam(IOAuth.Const.OPEN_ID, __token.getOpenId())
+                .buildJSONMessage();
+        // 与HttpStatusView.writeBody一致, 按UTF-8编码后写入输出流
+        byte[] _body = _response.getBody().getBytes("UTF-8");
+        sink.output.reset();
+        sink.output.write(_body);
+        return sink.output.size();
+    }
+
+    private int __stream(Sink sink) throws IOException {
+        sink.output.reset();
+        return TokenResponseWriter.write(sink.output, __token.getAccessToken(), EXPIRES_IN, __token.getRefreshToken(), __token.getScope(), __token.getOpenId());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int buildTokenResponse(Sink sink) throws Exception {
+        return __build(sink);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public int buildTokenResponseContended(Sink sink) throws Exception {
+        return __build(sink);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int streamTokenResponse(Sink sink) throws IOException {
+        return __stream(sink);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public int streamTokenResponseContended(Sink sink) throws IOException {
+        return __stream(sink);
+    }
+}
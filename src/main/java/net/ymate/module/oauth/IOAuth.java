@@ -15,9 +15,15 @@
  */
 package net.ymate.module.oauth;
 
+import net.ymate.module.oauth.support.OAuthMetrics;
+import net.ymate.module.oauth.support.ScopeRegistry;
+import net.ymate.module.oauth.support.StorageCallStats;
+import net.ymate.module.oauth.support.Tracer;
 import net.ymate.platform.core.YMP;
 import org.apache.commons.lang.StringUtils;
 
+import java.util.concurrent.Future;
+
 /**
  * @author 刘镇 (suninformation@163.com) on 2017/02/26 上午 02:08
  * @version 1.0
@@ -36,6 +42,52 @@ public interface IOAuth {
      */
     IOAuthModuleCfg getModuleCfg();
 
+    /**
+     * @return 返回各端点存储调用次数统计
+     */
+    StorageCallStats getStorageCallStats();
+
+    /**
+     * @return 返回度量指标门面, 未启用度量指标时其全部方法均直接返回
+     */
+    OAuthMetrics getMetrics();
+
+    /**
+     * @return 返回请求追踪器, 未启用请求追踪时其创建的片段均为空片段
+     */
+    Tracer getTracer();
+
+    /**
+     * @return 返回授权作用域注册表
+     */
+    ScopeRegistry getScopeRegistry();
+
+    /**
+     * 注册或更新应用信息, 要求令牌存储适配器实现{@link IOAuthClientStorageAdapter}接口
+     *
+     * @param client 应用基本信息(其id属性为clientId)
+     * @throws UnsupportedOperationException 若令牌存储适配器不支持维护应用信息
+     * @throws Exception                     可能产生的任何异常
+     */
+    void registerClient(OAuthClient client) throws Exception;
+
+    /**
+     * 移除应用信息及其授权令牌, 要求令牌存储适配器实现{@link IOAuthClientStorageAdapter}接口
+     *
+     * @param clientId 应用唯一标识
+     * @throws UnsupportedOperationException 若令牌存储适配器不支持维护应用信息
+     * @throws Exception                     可能产生的任何异常
+     */
+    void removeClient(String clientId) throws Exception;
+
+    /**
+     * 使应用信息注册表中指定应用的条目失效并从存储中重新加载, 未启用注册表时忽略
+     *
+     * @param clientId 应用唯一标识
+     * @throws Exception 可能产生的任何异常
+     */
+    void invalidateClient(String clientId) throws Exception;
+
     /**
      * @return 返回模块是否已初始化
      */
@@ -55,6 +107,22 @@ public interface IOAuth {
 
     IOAuthAccessResourceHelper bindAccessResourceHelper(String accessToken, String openId) throws Exception;
 
+    // ----- 异步接口: 存储读取在模块线程池中执行, 参数校验异常等均通过Future抛出
+
+    Future<IOAuthClientHelper> bindClientHelperAsync(String clientId, String clientSecret);
+
+    Future<IOAuthAuthzHelper> bindAuthzHelperAsync(String clientId, String uid);
+
+    Future<IOAuthTokenHelper> bindTokenHelperAsync(String clientId, String clientSecret, String code);
+
+    Future<IOAuthTokenHelper> bindTokenHelperAsync(String clientId, String clientSecret, String scope, String username, String passwd);
+
+    Future<IOAuthTokenHelper> bindTokenHelperAsync(String clientId, String refreshToken);
+
+    Future<IOAuthAccessResourceHelper> bindAccessResourceHelperAsync(String accessToken);
+
+    Future<IOAuthAccessResourceHelper> bindAccessResourceHelperAsync(String accessToken, String openId);
+
     /**
      * OAuth授权作用域
      */
@@ -64,9 +132,12 @@ public interface IOAuth {
 
         public static final String SNSAPI_USERINFO = "snsapi_userinfo";
 
+        /**
+         * @param scope 作用域字符串
+         * @return 若作用域为snsapi_base或snsapi_userinfo之一则返回true, 自定义作用域及多作用域组合请使用{@link ScopeRegistry#verified(String)}
+         */
         public static boolean verified(String scope) {
-            return StringUtils.equalsIgnoreCase(scope, IOAuth.Scope.SNSAPI_BASE)
-                    || StringUtils.equalsIgnoreCase(scope, IOAuth.Scope.SNSAPI_USERINFO);
+            return StringUtils.equalsIgnoreCase(scope, SNSAPI_BASE) || StringUtils.equalsIgnoreCase(scope, SNSAPI_USERINFO);
         }
     }
 
@@ -145,5 +216,11 @@ public interface IOAuth {
         boolean checkAccessToken();
 
         boolean checkScope(String scope);
+
+        /**
+         * @param scopeMask 由{@link ScopeRegistry#mask(String)}预编译的作用域掩码
+         * @return 若令牌已授权全部要求的作用域则返回true
+         */
+        boolean checkScope(long scopeMask);
     }
 }
\ No newline at end of file
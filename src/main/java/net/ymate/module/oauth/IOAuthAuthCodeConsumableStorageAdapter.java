@@ -0,0 +1,34 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth;
+
+/**
+ * 支持消费授权码的令牌存储适配器接口, 授权码仅可换取一次访问凭证, 模块在换取访问凭证前调用本接口将其移除;
+ * 未实现该接口的令牌存储适配器, 授权码在过期前可被重复使用
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/06/07 上午11:20
+ * @version 1.0
+ */
+public interface IOAuthAuthCodeConsumableStorageAdapter extends IOAuthStorageAdapter {
+
+    /**
+     * @param clientId  应用唯一标识
+     * @param authzCode 授权码
+     * @return 移除属于指定应用且尚未过期的授权码, 仅当本次调用成功移除时返回true(并发重复换取时只有一方成功)
+     * @throws Exception 可能产生的任何异常
+     */
+    boolean consumeAuthCode(String clientId, String authzCode) throws Exception;
+}
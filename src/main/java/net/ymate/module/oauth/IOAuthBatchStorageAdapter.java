@@ -0,0 +1,41 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth;
+
+import java.util.List;
+
+/**
+ * 支持批量写入的令牌存储适配器接口, 未实现该接口的存储适配器将逐条写入
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/05/24 下午2:30
+ * @version 1.0
+ */
+public interface IOAuthBatchStorageAdapter extends IOAuthStorageAdapter {
+
+    /**
+     * @param authCodes 授权码集合, 须按集合顺序依次写入
+     * @return 存储应用与用户关系并按相同顺序返回授权码对象集合
+     * @throws Exception 可能产生的任何异常
+     */
+    List<OAuthCode> saveOrUpdateAuthCodes(List<OAuthCode> authCodes) throws Exception;
+
+    /**
+     * @param tokens 用户访问凭证存储参数集合, 须按集合顺序依次写入(同一用户可能出现多次)
+     * @return 存储令牌信息并按相同顺序返回令牌对象集合
+     * @throws Exception 可能产生的任何异常
+     */
+    List<OAuthSnsToken> saveOrUpdateAccessTokens(List<OAuthTokenParams> tokens) throws Exception;
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth;
+
+/**
+ * 支持维护应用信息的令牌存储适配器接口, 供模块{@link IOAuth#registerClient(OAuthClient)}等方法调用;
+ * 模块内置的装饰器实现本接口并委派给被装饰的适配器, 被装饰适配器不支持时抛出UnsupportedOperationException
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/06/06 下午2:15
+ * @version 1.0
+ */
+public interface IOAuthClientStorageAdapter extends IOAuthStorageAdapter {
+
+    /**
+     * 注册或更新应用信息
+     *
+     * @param client 应用基本信息(其id属性为clientId)
+     * @throws Exception 可能产生的任何异常
+     */
+    void registerClient(OAuthClient client) throws Exception;
+
+    /**
+     * 移除应用信息及其授权令牌
+     *
+     * @param clientId 应用唯一标识
+     * @throws Exception 可能产生的任何异常
+     */
+    void removeClient(String clientId) throws Exception;
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth;
+
+/**
+ * 度量指标注册表接口, 可对接Micrometer、Dropwizard Metrics等第三方度量库;
+ * 模块在初始化时按名称及标签获取计时器和计数器并缓存复用, 实现类仅需保证同名同标签返回可并发调用的同一实例
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/06/06 上午10:40
+ * @version 1.0
+ */
+public interface IOAuthMetricsRegistry {
+
+    /**
+     * 端点请求计时器名称, 标签: endpoint, grant_type
+     */
+    String ENDPOINT_TIMER = "oauth.endpoint";
+
+    /**
+     * 错误响应计数器名称, 标签: endpoint, error
+     */
+    String ERROR_COUNTER = "oauth.errors";
+
+    /**
+     * 适配器方法调用计时器名称, 标签: adapter, method
+     */
+    String ADAPTER_TIMER = "oauth.adapter";
+
+    void init(IOAuth owner);
+
+    void destroy();
+
+    /**
+     * @param name 指标名称
+     * @param tags 标签名称与值交替排列, 如: "endpoint", "/oauth2/token"
+     * @return 返回计时器(记录值分布)
+     */
+    ITimer timer(String name, String... tags);
+
+    /**
+     * @param name 指标名称
+     * @param tags 标签名称与值交替排列
+     * @return 返回计数器
+     */
+    ICounter counter(String name, String... tags);
+
+    /**
+     * 计时器
+     */
+    interface ITimer {
+
+        /**
+         * @param nanos 耗时, 单位(纳秒)
+         */
+        void record(long nanos);
+    }
+
+    /**
+     * 计数器
+     */
+    interface ICounter {
+
+        void increment();
+    }
+}
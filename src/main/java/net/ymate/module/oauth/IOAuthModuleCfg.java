@@ -15,6 +15,12 @@
  */
 package net.ymate.module.oauth;
 
+import net.ymate.module.oauth.support.RefreshPolicy;
+import org.apache.oltu.oauth2.common.message.types.ParameterStyle;
+
+import java.util.List;
+import java.util.Set;
+
 /**
  * @author 刘镇 (suninformation@163.com) on 2017/02/26 上午 02:08
  * @version 1.0
@@ -31,11 +37,177 @@ public interface IOAuthModuleCfg {
      */
     String getCacheNamePrefix();
 
+    /**
+     * @return 令牌校验缓存最大条目数量, 小于等于0表示不启用缓存, 默认值: 0
+     */
+    int getTokenCacheSize();
+
+    /**
+     * @return 令牌校验缓存项最大存活时间, 单位(秒), 小于等于0表示仅受令牌有效期约束, 默认值: 300
+     */
+    int getTokenCacheTimeout();
+
+    /**
+     * @return 无效令牌记录缓存最大条目数量, 小于等于0表示不启用, 默认值: 0
+     */
+    int getTokenMissCacheSize();
+
+    /**
+     * @return 无效令牌记录存活时间, 单位(秒), 默认值: 30
+     */
+    int getTokenMissCacheTimeout();
+
+    /**
+     * @return 令牌组提交每批最大写入数量, 小于等于1表示不启用组提交, 默认值: 0
+     */
+    int getTokenWriteBatchSize();
+
+    /**
+     * @return 令牌组提交每批最大等待时间, 单位(毫秒), 默认值: 5
+     */
+    int getTokenWriteBatchLatency();
+
+    /**
+     * @return 是否在异步接口线程池中并行执行相互独立的存储查询(如: 应用与授权码、应用与用户), 默认值: false
+     */
+    boolean isParallelLookup();
+
+    /**
+     * @return 异步接口线程池大小, 默认值: CPU核数 * 2
+     */
+    int getAsyncPoolSize();
+
+    /**
+     * @return 是否启用应用信息注册表(启动时全量加载应用信息并常驻内存), 默认值: false
+     */
+    boolean isClientRegistryEnabled();
+
+    /**
+     * @param endpoint 端点名称(token, access_token, refresh_token)
+     * @return 指定端点是否使用流式写入器直接输出访问凭证响应报文, 默认值: false
+     */
+    boolean isTokenResponseStreaming(String endpoint);
+
+    /**
+     * @return 资源访问时允许的访问凭证传递方式(header|query|body), 默认值: header|query
+     */
+    Set<ParameterStyle> getTokenParameterStyles();
+
+    /**
+     * @return 自定义授权作用域名称集合, 将在snsapi_base及snsapi_userinfo之后依次注册到作用域注册表
+     */
+    List<String> getCustomScopes();
+
+    /**
+     * @return 刷新凭证有效期策略, 默认规则: sliding:7,30,90
+     */
+    RefreshPolicy getRefreshPolicy();
+
+    /**
+     * @return 刷新凭证宽限期, 单位(毫秒), 宽限期内使用同一刷新凭证的重复请求将得到相同的刷新结果, 小于等于0表示仅合并并发请求, 默认值: 3000
+     */
+    int getRefreshTokenGraceTime();
+
+    /**
+     * @return 用户令牌写入分段锁数量, 同一用户(clientId, uid)的令牌写入串行执行, 默认值: 1024
+     */
+    int getTokenLockStripes();
+
+    /**
+     * @return 访问凭证轮换后上一个访问凭证(lastAccessToken)的宽限期, 单位(秒), 小于等于0表示不接受, 默认值: 0
+     */
+    int getAccessTokenGraceTime();
+
+    /**
+     * @return 是否启用过期令牌清理器(要求令牌存储适配器实现IOAuthPurgeableStorageAdapter接口), 默认值: false
+     */
+    boolean isTokenSweeperEnabled();
+
+    /**
+     * @return 过期授权码清理间隔, 单位(秒), 默认值: 60
+     */
+    int getTokenSweeperAuthCodeInterval();
+
+    /**
+     * @return 过期访问凭证及刷新凭证清理间隔, 单位(秒), 默认值: 3600
+     */
+    int getTokenSweeperInterval();
+
+    /**
+     * @return 过期令牌清理每批次最大清理数量, 默认值: 500
+     */
+    int getTokenSweeperBatchSize();
+
+    /**
+     * @return 过期令牌每轮清理最大批次数量, 默认值: 100
+     */
+    int getTokenSweeperMaxBatches();
+
+    /**
+     * @return 过期令牌清理每秒最多执行的批次数量, 小于等于0表示不限制, 默认值: 10
+     */
+    int getTokenSweeperRateLimit();
+
+    /**
+     * @return 是否启用度量指标(端点耗时、错误代码及适配器方法耗时), 默认值: false
+     */
+    boolean isMetricsEnabled();
+
+    /**
+     * @return 度量指标注册表接口实现, 未启用度量指标时返回null, 默认值: net.ymate.module.oauth.impl.DefaultMetricsRegistry
+     */
+    IOAuthMetricsRegistry getMetricsRegistry();
+
+    /**
+     * @return 是否启用存储调用统计(按方法记录令牌存储适配器调用耗时直方图并记录慢调用日志), 默认值: false
+     */
+    boolean isStorageInstrumentationEnabled();
+
+    /**
+     * @return 存储慢调用日志阈值, 单位(毫秒), 小于等于0表示不记录, 默认值: 200
+     */
+    int getStorageSlowCallThreshold();
+
+    /**
+     * @return 是否启用请求追踪(控制器各步骤、模块辅助方法及适配器调用), 默认值: false
+     */
+    boolean isTracingEnabled();
+
+    /**
+     * @return 未携带traceparent请求头的请求的追踪采样比例(0 - 1), 默认值: 1
+     */
+    double getTracingSampleRatio();
+
+    /**
+     * @return 追踪片段导出器接口实现, 未启用请求追踪时返回null, 默认值: net.ymate.module.oauth.impl.LogSpanExporter
+     */
+    IOAuthSpanExporter getSpanExporter();
+
+    /**
+     * @return 应用信息注册表定时刷新间隔, 单位(秒), 小于等于0表示不定时刷新, 默认值: 300
+     */
+    int getClientRegistryRefreshInterval();
+
     /**
      * @return 用户确认授权JSP视图文件路径, 默认值: _views/oauth2/sns-authorization
      */
     String getAuthorizationView();
 
+    /**
+     * @return 签名访问凭证密钥, 仅当Token生成器为签名凭证生成器时有效, 默认值: 空(随机生成)
+     */
+    String getTokenSignSecret();
+
+    /**
+     * @return 签名访问凭证校验时是否检查其是否已被撤销(需查询存储), 默认值: true
+     */
+    boolean isTokenRevocationCheck();
+
+    /**
+     * @return 随机Token包含的随机字节数量(熵), 仅当Token生成器为SecureRandomTokenGenerator时有效, 默认值: 32
+     */
+    int getTokenEntropyBytes();
+
     /**
      * @return Token生成器接口实现
      */
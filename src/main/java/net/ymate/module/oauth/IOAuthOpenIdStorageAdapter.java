@@ -0,0 +1,36 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth;
+
+/**
+ * 支持预先分配用户唯一标识(openId)的令牌存储适配器接口, 签名访问凭证须在签发时携带openId,
+ * 首次授权时用户令牌记录尚不存在, 模块通过本接口取得openId后签发凭证, 再一次写入令牌记录;
+ * 使用签名访问凭证生成器时要求令牌存储适配器实现该接口, 否则模块将改为签发普通访问凭证
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/06/07 上午10:05
+ * @version 1.0
+ */
+public interface IOAuthOpenIdStorageAdapter extends IOAuthStorageAdapter {
+
+    /**
+     * @param clientId 应用唯一标识
+     * @param uid      用户主键
+     * @return 返回已存在的用户令牌记录的唯一标识; 若记录不存在则分配并保留一个唯一标识,
+     * 随后为该用户创建令牌记录时须使用此标识, 同一(clientId, uid)重复调用须返回相同结果
+     * @throws Exception 可能产生的任何异常
+     */
+    String allocateOpenId(String clientId, String uid) throws Exception;
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth;
+
+/**
+ * 支持清理过期数据的令牌存储适配器接口, 由过期令牌清理器按批次调用, 每次调用清理的条目数量不得超过limit,
+ * 返回值小于limit表示已无待清理数据
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/05/31 上午10:20
+ * @version 1.0
+ */
+public interface IOAuthPurgeableStorageAdapter extends IOAuthStorageAdapter {
+
+    /**
+     * @param createdBefore 授权码创建时间早于该时间(毫秒)即视为过期
+     * @param limit         本批次最大清理数量
+     * @return 清理过期授权码并返回实际清理数量
+     * @throws Exception 可能产生的任何异常
+     */
+    int purgeExpiredAuthCodes(long createdBefore, int limit) throws Exception;
+
+    /**
+     * 清理已过期的应用及用户访问凭证(lastModifyTime + expiresIn不晚于now), 保留应用与用户授权关系
+     *
+     * @param now   当前时间(毫秒)
+     * @param limit 本批次最大清理数量
+     * @return 返回实际清理数量
+     * @throws Exception 可能产生的任何异常
+     */
+    int purgeExpiredAccessTokens(long now, int limit) throws Exception;
+
+    /**
+     * 清理已过期的刷新凭证(refreshExpireTime不晚于now), 保留应用与用户授权关系
+     *
+     * @param now   当前时间(毫秒)
+     * @param limit 本批次最大清理数量
+     * @return 返回实际清理数量
+     * @throws Exception 可能产生的任何异常
+     */
+    int purgeExpiredRefreshTokens(long now, int limit) throws Exception;
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth;
+
+/**
+ * 支持存储刷新凭证到期时间的令牌存储适配器接口, 模块写入令牌时优先调用本接口方法;
+ * 未实现该接口的存储适配器不保存到期时间, 模块将根据最后修改时间及刷新次数按滑动方式判断刷新凭证是否过期
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/06/02 上午9:40
+ * @version 1.0
+ */
+public interface IOAuthRefreshExpireStorageAdapter extends IOAuthStorageAdapter {
+
+    /**
+     * 模块保证同一用户(clientId, uid)的调用按顺序执行, 实现仍须保证自身线程安全(可按用户分段加锁, 无需全局加锁)
+     *
+     * @param clientId          应用唯一标识
+     * @param uid               用户主键
+     * @param scope             应用授权作用域, 为null时保持不变
+     * @param accessToken       访问凭证, 为null时保持不变
+     * @param refreshToken      刷新凭证
+     * @param expiresIn         访问凭证超时时间, 单位(秒)
+     * @param refreshExpireTime 刷新凭证到期时间(毫秒), 须随令牌存储, 用于过期判断及清理
+     * @param refresh           是否为刷新方式签发(累加刷新次数, 否则刷新次数归零)
+     * @return 存储令牌信息并返回令牌对象
+     * @throws Exception 可能产生的任何异常
+     */
+    OAuthSnsToken saveOrUpdateAccessToken(String clientId, String uid, String scope, String accessToken, String refreshToken, int expiresIn, long refreshExpireTime, boolean refresh) throws Exception;
+}
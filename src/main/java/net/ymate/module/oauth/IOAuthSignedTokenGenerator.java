@@ -0,0 +1,44 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth;
+
+/**
+ * 自包含签名访问凭证生成器接口, 签发的访问凭证携带应用、用户唯一标识(openId)、授权作用域及过期时间等声明信息,
+ * 资源访问时可仅通过签名校验完成凭证合法性及有效期验证; 凭证内容对第三方应用可见, 不得携带用户主键等内部信息
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/05/22 下午5:10
+ * @version 1.0
+ */
+public interface IOAuthSignedTokenGenerator extends IOAuthTokenGenerator {
+
+    void init(IOAuth owner) throws Exception;
+
+    /**
+     * @param clientId  应用唯一标识
+     * @param openId    用户的唯一标识, 应用访问凭证为null
+     * @param scope     应用授权作用域, 应用访问凭证为null
+     * @param expiresIn 凭证超时时间, 单位(秒)
+     * @return 返回签名访问凭证
+     * @throws Exception 可能产生的任何异常
+     */
+    String accessToken(String clientId, String openId, String scope, int expiresIn) throws Exception;
+
+    /**
+     * @param accessToken 访问凭证
+     * @return 校验签名并返回凭证声明信息, 若格式或签名无效则返回null(不校验是否过期)
+     */
+    OAuthTokenClaims parseAccessToken(String accessToken);
+}
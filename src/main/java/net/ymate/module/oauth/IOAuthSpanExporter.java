@@ -0,0 +1,36 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth;
+
+import net.ymate.module.oauth.support.TraceSpan;
+
+/**
+ * 追踪片段导出器接口, 片段结束时在结束它的线程中同步调用, 实现类应避免阻塞(如: 交由日志框架异步输出或自行缓冲)
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/06/07 上午10:05
+ * @version 1.0
+ */
+public interface IOAuthSpanExporter {
+
+    void init(IOAuth owner);
+
+    void destroy();
+
+    /**
+     * @param span 已结束的追踪片段
+     */
+    void export(TraceSpan span);
+}
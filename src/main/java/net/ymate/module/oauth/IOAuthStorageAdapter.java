@@ -15,6 +15,8 @@
  */
 package net.ymate.module.oauth;
 
+import java.util.List;
+
 /**
  * @author 刘镇 (suninformation@163.com) on 17/3/6 上午12:14
  * @version 1.0
@@ -32,9 +34,16 @@ public interface IOAuthStorageAdapter {
      */
     OAuthClient findClientById(String clientId) throws Exception;
 
+    /**
+     * @return 返回全部应用基本信息和授权令牌信息, 用于预加载应用信息注册表
+     * @throws Exception 可能产生的任何异常
+     */
+    List<OAuthClient> listClients() throws Exception;
+
     /**
      * @param accessToken 接口访问凭证
-     * @return 根据凭证获取应用基本信息和授权令牌信息
+     * @return 根据凭证获取应用基本信息和授权令牌信息, 应同时匹配当前及上一个访问凭证(lastAccessToken, 须建立索引),
+     * 以便模块在宽限期内接受轮换前的凭证; 仅匹配当前凭证的实现将不支持宽限期
      * @throws Exception 可能产生任何异常
      */
     OAuthClient findClientByAccessToken(String accessToken) throws Exception;
@@ -63,10 +72,29 @@ public interface IOAuthStorageAdapter {
 
     OAuthCode findAuthCode(String clientId, String authzCode) throws Exception;
 
+    /**
+     * 模块保证同一用户(clientId, uid)的调用按顺序执行, 实现仍须保证自身线程安全(可按用户分段加锁, 无需全局加锁);
+     * 需要存储刷新凭证到期时间的实现请同时实现{@link IOAuthRefreshExpireStorageAdapter}接口
+     *
+     * @param clientId     应用唯一标识
+     * @param uid          用户主键
+     * @param scope        应用授权作用域, 为null时保持不变
+     * @param accessToken  访问凭证, 为null时保持不变
+     * @param refreshToken 刷新凭证
+     * @param expiresIn    访问凭证超时时间, 单位(秒)
+     * @param refresh      是否为刷新方式签发(累加刷新次数, 否则刷新次数归零)
+     * @return 存储令牌信息并返回令牌对象
+     * @throws Exception 可能产生的任何异常
+     */
     OAuthSnsToken saveOrUpdateAccessToken(String clientId, String uid, String scope, String accessToken, String refreshToken, int expiresIn, boolean refresh) throws Exception;
 
     OAuthClientUser findUser(String clientId, String uid) throws Exception;
 
+    /**
+     * @param accessToken 用户访问凭证
+     * @return 根据凭证获取用户授权令牌信息, 匹配规则同{@link #findClientByAccessToken(String)}
+     * @throws Exception 可能产生的任何异常
+     */
     OAuthClientUser findUserByAccessToken(String accessToken) throws Exception;
 
     OAuthClientUser findUserByRefreshToken(String clientId, String refreshToken) throws Exception;
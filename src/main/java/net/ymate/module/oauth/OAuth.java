@@ -15,19 +15,42 @@
  */
 package net.ymate.module.oauth;
 
+import net.ymate.module.oauth.impl.CachingStorageAdapter;
 import net.ymate.module.oauth.impl.DefaultModuleCfg;
+import net.ymate.module.oauth.impl.InstrumentedStorageAdapter;
+import net.ymate.module.oauth.support.ClientRegistry;
+import net.ymate.module.oauth.support.ExpiredTokenSweeper;
+import net.ymate.module.oauth.support.ScopeRegistry;
+import net.ymate.module.oauth.support.SingleFlight;
+import net.ymate.module.oauth.support.StripedLocks;
+import net.ymate.module.oauth.support.DaemonThreadFactory;
+import net.ymate.module.oauth.support.GroupCommitWriter;
+import net.ymate.module.oauth.support.Lazy;
+import net.ymate.module.oauth.support.OAuthMetrics;
+import net.ymate.module.oauth.support.StorageBatchHelper;
+import net.ymate.module.oauth.support.StorageCallStats;
+import net.ymate.module.oauth.support.TokenMissCache;
+import net.ymate.module.oauth.support.TraceSpan;
+import net.ymate.module.oauth.support.Tracer;
 import net.ymate.platform.core.Version;
 import net.ymate.platform.core.YMP;
 import net.ymate.platform.core.lang.BlurObject;
 import net.ymate.platform.core.module.IModule;
 import net.ymate.platform.core.module.annotation.Module;
-import net.ymate.platform.core.util.DateTimeUtils;
 import net.ymate.platform.core.util.RuntimeUtils;
 import org.apache.commons.lang.NullArgumentException;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+
 /**
  * @author 刘镇 (suninformation@163.com) on 2017/02/26 上午 02:08
  * @version 1.0
@@ -41,11 +64,48 @@ public class OAuth implements IModule, IOAuth {
 
     private static volatile IOAuth __instance;
 
+    /**
+     * 刷新凭证宽限期结果最大缓存数量
+     */
+    private static final int REFRESH_FLIGHT_CACHE_SIZE = 4096;
+
     private YMP __owner;
 
     private IOAuthModuleCfg __moduleCfg;
 
-    private boolean __inited;
+    private volatile boolean __inited;
+
+    private IOAuthSignedTokenGenerator __signedTokenGenerator;
+
+    private GroupCommitWriter __groupCommitWriter;
+
+    private volatile ExecutorService __executorService;
+
+    private final DaemonThreadFactory __asyncThreadFactory = new DaemonThreadFactory("oauth-async");
+
+    private TokenMissCache __clientTokenMisses;
+
+    private TokenMissCache __userTokenMisses;
+
+    private ClientRegistry __clientRegistry;
+
+    private ExpiredTokenSweeper __tokenSweeper;
+
+    private SingleFlight<String, OAuthSnsToken> __refreshFlights;
+
+    private StripedLocks __tokenLocks;
+
+    private final AtomicLong __accessTokenGraceHits = new AtomicLong();
+
+    private final AtomicLong __accessTokenGraceRejects = new AtomicLong();
+
+    private final StorageCallStats __storageCallStats = new StorageCallStats();
+
+    private OAuthMetrics __metrics = new OAuthMetrics(null);
+
+    private Tracer __tracer = new Tracer(null, 0);
+
+    private final ScopeRegistry __scopeRegistry = new ScopeRegistry();
 
     public static IOAuth get() {
         if (__instance == null) {
@@ -69,10 +129,58 @@ public class OAuth implements IModule, IOAuth {
             //
             __owner = owner;
             __moduleCfg = new DefaultModuleCfg(owner);
+            if (__moduleCfg.getMetricsRegistry() != null) {
+                __moduleCfg.getMetricsRegistry().init(this);
+                __metrics = new OAuthMetrics(__moduleCfg.getMetricsRegistry());
+            }
+            if (__moduleCfg.getSpanExporter() != null) {
+                __moduleCfg.getSpanExporter().init(this);
+                __tracer = new Tracer(__moduleCfg.getSpanExporter(), __moduleCfg.getTracingSampleRatio());
+            }
             __moduleCfg.getTokenStorageAdapter().init(this);
+            __tokenLocks = new StripedLocks(__moduleCfg.getTokenLockStripes());
+            __refreshFlights = new SingleFlight<String, OAuthSnsToken>(__moduleCfg.getCacheNamePrefix().concat("oauth_refresh_flights"), REFRESH_FLIGHT_CACHE_SIZE, __moduleCfg.getRefreshTokenGraceTime());
+            for (String _scope : __moduleCfg.getCustomScopes()) {
+                __scopeRegistry.register(_scope);
+            }
+            if (__moduleCfg.isClientRegistryEnabled()) {
+                ClientRegistry _registry = new ClientRegistry(__moduleCfg.getTokenStorageAdapter());
+                _registry.init(__moduleCfg.getClientRegistryRefreshInterval());
+                __clientRegistry = _registry;
+            }
             if (__moduleCfg.getUserInfoAdapter() != null) {
                 __moduleCfg.getUserInfoAdapter().init(this);
             }
+            if (__moduleCfg.getTokenGenerator() instanceof IOAuthSignedTokenGenerator) {
+                // 签名访问凭证须在签发时携带用户唯一标识, 要求存储适配器支持预先分配(内置装饰器总是实现该接口, 需按最内层适配器判断)
+                if (__innermost(__moduleCfg.getTokenStorageAdapter()) instanceof IOAuthOpenIdStorageAdapter) {
+                    __signedTokenGenerator = (IOAuthSignedTokenGenerator) __moduleCfg.getTokenGenerator();
+                    __signedTokenGenerator.init(this);
+                } else {
+                    _LOG.warn("Token storage adapter does not implement IOAuthOpenIdStorageAdapter, signed access tokens disabled.");
+                }
+            }
+            if (__moduleCfg.getTokenMissCacheSize() > 0) {
+                __clientTokenMisses = new TokenMissCache(__moduleCfg.getCacheNamePrefix().concat("oauth_client_token_misses"), __moduleCfg.getTokenMissCacheSize(), __moduleCfg.getTokenMissCacheTimeout());
+                __userTokenMisses = new TokenMissCache(__moduleCfg.getCacheNamePrefix().concat("oauth_user_token_misses"), __moduleCfg.getTokenMissCacheSize(), __moduleCfg.getTokenMissCacheTimeout());
+            }
+            if (__moduleCfg.getTokenWriteBatchSize() > 1) {
+                __groupCommitWriter = new GroupCommitWriter(__moduleCfg.getTokenStorageAdapter(), __moduleCfg.getTokenWriteBatchSize(), __moduleCfg.getTokenWriteBatchLatency(), __userTokenMisses,
+                        __innermost(__moduleCfg.getTokenStorageAdapter()) instanceof IOAuthBatchStorageAdapter);
+                __groupCommitWriter.start();
+            }
+            if (!(__innermost(__moduleCfg.getTokenStorageAdapter()) instanceof IOAuthAuthCodeConsumableStorageAdapter)) {
+                _LOG.warn("Token storage adapter does not implement IOAuthAuthCodeConsumableStorageAdapter, authorization codes may be reused until they expire.");
+            }
+            if (__moduleCfg.isTokenSweeperEnabled()) {
+                // 缓存及度量装饰器总是实现清理接口(被装饰适配器不支持时返回0), 需按最内层适配器判断
+                if (__innermost(__moduleCfg.getTokenStorageAdapter()) instanceof IOAuthPurgeableStorageAdapter) {
+                    __tokenSweeper = new ExpiredTokenSweeper((IOAuthPurgeableStorageAdapter) __moduleCfg.getTokenStorageAdapter(), __moduleCfg.getTokenSweeperBatchSize(), __moduleCfg.getTokenSweeperMaxBatches(), __moduleCfg.getTokenSweeperRateLimit());
+                    __tokenSweeper.init(__moduleCfg.getTokenSweeperAuthCodeInterval(), __moduleCfg.getTokenSweeperInterval());
+                } else {
+                    _LOG.warn("Token storage adapter does not implement IOAuthPurgeableStorageAdapter, expired token sweeper disabled.");
+                }
+            }
             //
             __inited = true;
         }
@@ -85,10 +193,47 @@ public class OAuth implements IModule, IOAuth {
     public void destroy() throws Exception {
         if (__inited) {
             __inited = false;
+            synchronized (this) {
+                if (__executorService != null) {
+                    __executorService.shutdown();
+                    __executorService = null;
+                }
+            }
+            if (__groupCommitWriter != null) {
+                __groupCommitWriter.stop();
+                __groupCommitWriter = null;
+            }
             if (__moduleCfg.getUserInfoAdapter() != null) {
                 __moduleCfg.getUserInfoAdapter().destroy();
             }
+            if (__tokenSweeper != null) {
+                __tokenSweeper.destroy();
+                __tokenSweeper = null;
+            }
+            if (__clientRegistry != null) {
+                __clientRegistry.destroy();
+                __clientRegistry = null;
+            }
             __moduleCfg.getTokenStorageAdapter().destroy();
+            if (__clientTokenMisses != null) {
+                __clientTokenMisses.clear();
+                __clientTokenMisses = null;
+            }
+            if (__userTokenMisses != null) {
+                __userTokenMisses.clear();
+                __userTokenMisses = null;
+            }
+            __signedTokenGenerator = null;
+            __refreshFlights = null;
+            __tokenLocks = null;
+            if (__moduleCfg.getMetricsRegistry() != null) {
+                __metrics = new OAuthMetrics(null);
+                __moduleCfg.getMetricsRegistry().destroy();
+            }
+            if (__moduleCfg.getSpanExporter() != null) {
+                __tracer = new Tracer(null, 0);
+                __moduleCfg.getSpanExporter().destroy();
+            }
             //
             __moduleCfg = null;
             __owner = null;
@@ -103,6 +248,362 @@ public class OAuth implements IModule, IOAuth {
         return __moduleCfg;
     }
 
+    /**
+     * @return 返回模块异步任务线程池(首次调用时创建)
+     * @throws IllegalStateException 若模块未初始化或已销毁
+     */
+    public ExecutorService getExecutorService() {
+        if (__executorService == null) {
+            synchronized (this) {
+                if (__executorService == null) {
+                    if (!__inited || __moduleCfg == null) {
+                        throw new IllegalStateException("Module " + getName() + " is not initialized or has been destroyed.");
+                    }
+                    __executorService = Executors.newFixedThreadPool(__moduleCfg.getAsyncPoolSize(), __asyncThreadFactory);
+                }
+            }
+        }
+        return __executorService;
+    }
+
+    /**
+     * @return 返回应用访问凭证无效记录缓存, 未启用时返回null
+     */
+    public TokenMissCache getClientTokenMisses() {
+        return __clientTokenMisses;
+    }
+
+    /**
+     * @return 返回用户访问凭证无效记录缓存, 未启用时返回null
+     */
+    public TokenMissCache getUserTokenMisses() {
+        return __userTokenMisses;
+    }
+
+    public StorageCallStats getStorageCallStats() {
+        return __storageCallStats;
+    }
+
+    public OAuthMetrics getMetrics() {
+        return __metrics;
+    }
+
+    public Tracer getTracer() {
+        return __tracer;
+    }
+
+    public ScopeRegistry getScopeRegistry() {
+        return __scopeRegistry;
+    }
+
+    /**
+     * @return 返回刷新凭证请求合并器(可获取共享结果次数)
+     */
+    public SingleFlight<String, OAuthSnsToken> getRefreshFlights() {
+        return __refreshFlights;
+    }
+
+    /**
+     * @return 返回去除模块内置装饰器(缓存、度量)后的令牌存储适配器
+     */
+    private static IOAuthStorageAdapter __innermost(IOAuthStorageAdapter adapter) {
+        while (true) {
+            if (adapter instanceof CachingStorageAdapter) {
+                adapter = ((CachingStorageAdapter) adapter).getDelegate();
+            } else if (adapter instanceof InstrumentedStorageAdapter) {
+                adapter = ((InstrumentedStorageAdapter) adapter).getDelegate();
+            } else {
+                return adapter;
+            }
+        }
+    }
+
+    /**
+     * @return 返回令牌存储适配器度量装饰器(可获取各方法调用耗时快照), 未启用度量指标及存储调用统计时返回null
+     */
+    public InstrumentedStorageAdapter getStorageInstrumentation() {
+        IOAuthStorageAdapter _storage = __moduleCfg.getTokenStorageAdapter();
+        if (_storage instanceof CachingStorageAdapter) {
+            _storage = ((CachingStorageAdapter) _storage).getDelegate();
+        }
+        return _storage instanceof InstrumentedStorageAdapter ? (InstrumentedStorageAdapter) _storage : null;
+    }
+
+    /**
+     * @return 返回过期令牌清理器(可获取清理统计快照), 未启用时返回null
+     */
+    public ExpiredTokenSweeper getTokenSweeper() {
+        return __tokenSweeper;
+    }
+
+    /**
+     * @return 返回应用信息注册表, 未启用时返回null
+     */
+    public ClientRegistry getClientRegistry() {
+        return __clientRegistry;
+    }
+
+    public void invalidateClient(String clientId) throws Exception {
+        ClientRegistry _registry = __clientRegistry;
+        if (_registry != null) {
+            StorageCallStats.increment();
+            _registry.invalidate(clientId);
+        }
+    }
+
+    public void registerClient(OAuthClient client) throws Exception {
+        __clientStorage().registerClient(client);
+    }
+
+    public void removeClient(String clientId) throws Exception {
+        __clientStorage().removeClient(clientId);
+    }
+
+    /**
+     * @return 返回支持维护应用信息的令牌存储适配器(包含模块内置装饰器, 以便同步失效其缓存)
+     */
+    private IOAuthClientStorageAdapter __clientStorage() {
+        IOAuthStorageAdapter _storage = __moduleCfg.getTokenStorageAdapter();
+        // 内置装饰器总是实现该接口, 需按最内层适配器判断是否支持
+        if (!(__innermost(_storage) instanceof IOAuthClientStorageAdapter) || !(_storage instanceof IOAuthClientStorageAdapter)) {
+            throw new UnsupportedOperationException("Token storage adapter does not implement IOAuthClientStorageAdapter.");
+        }
+        return (IOAuthClientStorageAdapter) _storage;
+    }
+
+    /**
+     * 优先从应用信息注册表中读取, 未命中时(如新注册的应用)查询存储并补充至注册表
+     */
+    private OAuthClient __findClientById(String clientId) throws Exception {
+        ClientRegistry _registry = __clientRegistry;
+        if (_registry == null) {
+            return __storage().findClientById(clientId);
+        }
+        OAuthClient _clientVO = _registry.get(clientId);
+        if (_clientVO == null) {
+            _clientVO = __storage().findClientById(clientId);
+            if (_clientVO != null) {
+                _registry.put(_clientVO);
+            }
+        }
+        return _clientVO;
+    }
+
+    private OAuthClient __findClientByAccessToken(String accessToken) throws Exception {
+        if (__clientTokenMisses != null && __clientTokenMisses.isMissed(accessToken)) {
+            return null;
+        }
+        OAuthClient _clientVO = __storage().findClientByAccessToken(accessToken);
+        if (_clientVO != null && !StringUtils.equals(accessToken, _clientVO.getAccessToken()) && !__acceptLastAccessToken(_clientVO.getLastModifyTime())) {
+            _clientVO = null;
+        }
+        if (_clientVO == null && __clientTokenMisses != null) {
+            __clientTokenMisses.markMissed(accessToken);
+        }
+        return _clientVO;
+    }
+
+    private OAuthClientUser __findUserByAccessToken(String accessToken) throws Exception {
+        if (__userTokenMisses != null && __userTokenMisses.isMissed(accessToken)) {
+            return null;
+        }
+        OAuthClientUser _clientUserVO = __storage().findUserByAccessToken(accessToken);
+        if (_clientUserVO != null && !StringUtils.equals(accessToken, _clientUserVO.getAccessToken()) && !__acceptLastAccessToken(_clientUserVO.getRotateTime() != null ? _clientUserVO.getRotateTime() : _clientUserVO.getLastModifyTime())) {
+            _clientUserVO = null;
+        }
+        if (_clientUserVO == null && __userTokenMisses != null) {
+            __userTokenMisses.markMissed(accessToken);
+        }
+        return _clientUserVO;
+    }
+
+    /**
+     * 存储适配器按上一个访问凭证匹配到令牌记录时, 判断凭证轮换后是否仍处于宽限期内;
+     * 用户令牌记录按访问凭证轮换时间计算(仅轮换刷新凭证的写入不会延长宽限期), 应用令牌记录每次写入均轮换访问凭证, 按最后修改时间计算
+     */
+    private boolean __acceptLastAccessToken(Long lastModifyTime) {
+        int _graceTime = __moduleCfg.getAccessTokenGraceTime();
+        if (_graceTime > 0 && lastModifyTime != null && System.currentTimeMillis() - lastModifyTime < _graceTime * 1000L) {
+            __accessTokenGraceHits.incrementAndGet();
+            return true;
+        }
+        __accessTokenGraceRejects.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * @return 返回宽限期内使用上一个访问凭证通过验证的次数
+     */
+    public long getAccessTokenGraceHits() {
+        return __accessTokenGraceHits.get();
+    }
+
+    /**
+     * @return 返回上一个访问凭证因超出宽限期(或未启用宽限期)而被拒绝的次数
+     */
+    public long getAccessTokenGraceRejects() {
+        return __accessTokenGraceRejects.get();
+    }
+
+    /**
+     * @return 返回令牌存储适配器并累计当前线程的存储调用次数
+     */
+    private boolean __consumeAuthCode(String clientId, String code) throws Exception {
+        IOAuthStorageAdapter _storage = __storage();
+        if (__innermost(_storage) instanceof IOAuthAuthCodeConsumableStorageAdapter) {
+            return ((IOAuthAuthCodeConsumableStorageAdapter) _storage).consumeAuthCode(clientId, code);
+        }
+        return true;
+    }
+
+    private IOAuthStorageAdapter __storage() {
+        StorageCallStats.increment();
+        return __moduleCfg.getTokenStorageAdapter();
+    }
+
+    /**
+     * 创建延迟加载值, 首次访问时在当前线程中执行加载
+     */
+    private static <T> Lazy<T> __lazy(final Callable<T> loader) {
+        return new Lazy<T>() {
+            @Override
+            protected T load() throws Exception {
+                return loader.call();
+            }
+        };
+    }
+
+    /**
+     * 创建与其它存储读取相互独立的延迟加载值: 启用并行查询时立即提交至模块线程池执行,
+     * 否则(或当前线程已是模块线程池线程时)与{@link #__lazy(Callable)}相同; 加载器须直接使用存储适配器, 调用次数在此统计
+     */
+    private <T> Lazy<T> __prefetch(final Callable<T> loader) {
+        if (__moduleCfg.isParallelLookup() && !__asyncThreadFactory.isCurrentThreadOwned()) {
+            StorageCallStats.increment();
+            // 追踪上下文随任务传递, 线程池中的存储调用片段仍归属于当前请求
+            final Future<T> _future = getExecutorService().submit(__tracer.wrap(loader));
+            return new Lazy<T>() {
+                @Override
+                protected T load() throws Exception {
+                    try {
+                        return _future.get();
+                    } catch (ExecutionException e) {
+                        Throwable _cause = e.getCause();
+                        if (_cause instanceof Exception) {
+                            throw (Exception) _cause;
+                        }
+                        throw e;
+                    }
+                }
+            };
+        }
+        return new Lazy<T>() {
+            @Override
+            protected T load() throws Exception {
+                StorageCallStats.increment();
+                return loader.call();
+            }
+        };
+    }
+
+    private String __accessToken(String clientId, String openId, String scope) throws Exception {
+        TraceSpan _span = __tracer.startSpan("oauth.mint_access_token");
+        try {
+            if (__signedTokenGenerator != null) {
+                return __signedTokenGenerator.accessToken(clientId, openId, scope, __moduleCfg.getAccessTokenExpireIn());
+            }
+            return __moduleCfg.getTokenGenerator().accessToken();
+        } finally {
+            _span.end();
+        }
+    }
+
+    private String __authorizationCode() throws Exception {
+        TraceSpan _span = __tracer.startSpan("oauth.mint_auth_code");
+        try {
+            return __moduleCfg.getTokenGenerator().authorizationCode();
+        } finally {
+            _span.end();
+        }
+    }
+
+    /**
+     * 为用户签发新的访问凭证及刷新凭证(授权码及密码授权方式)
+     */
+    private OAuthSnsToken __createUserAccessToken(String clientId, String uid, String scope) throws Exception {
+        String _openId = null;
+        if (__signedTokenGenerator != null) {
+            // 签名访问凭证须携带用户唯一标识, 首次授权时用户记录尚不存在, 由存储适配器预先分配, 令牌记录仅写入一次
+            _openId = ((IOAuthOpenIdStorageAdapter) __storage()).allocateOpenId(clientId, uid);
+        }
+        return __saveOrUpdateAccessToken(clientId, uid, scope,
+                __accessToken(clientId, _openId, scope),
+                __moduleCfg.getTokenGenerator().refreshToken(),
+                __moduleCfg.getAccessTokenExpireIn(), null, false);
+    }
+
+    private OAuthToken __onClientTokenIssued(OAuthToken token) throws Exception {
+        if (token != null) {
+            if (__clientTokenMisses != null) {
+                __clientTokenMisses.clear(token);
+            }
+            // 注册表中的应用授权令牌信息随之更新
+            invalidateClient(token.getClientId());
+        }
+        return token;
+    }
+
+    private OAuthSnsToken __saveOrUpdateAccessToken(String clientId, String uid, String scope, String accessToken, String refreshToken, int expiresIn, OAuthClientUser origin, boolean refresh) throws Exception {
+        // 刷新凭证到期时间在写入时按策略预先计算并随令牌存储
+        long _refreshExpireTime = __moduleCfg.getRefreshPolicy().expireTime(clientId, origin, refresh, System.currentTimeMillis());
+        OAuthSnsToken _token = null;
+        GroupCommitWriter _writer = __groupCommitWriter;
+        GroupCommitWriter.Pending<OAuthSnsToken> _pending = null;
+        TraceSpan _span = __tracer.startSpan("oauth.save_access_token").setAttribute("oauth.refresh", String.valueOf(refresh));
+        try {
+            // 同一用户的令牌写入按(clientId, uid)串行执行; 组提交时仅在入队期间持有锁(队列保证写入顺序), 等待批次完成时不占用锁
+            Lock _lock = __tokenLocks.get(clientId, uid);
+            long _lockStart = _span.isRecording() ? System.nanoTime() : 0;
+            _lock.lock();
+            if (_span.isRecording()) {
+                _span.setAttribute("oauth.lock_wait_us", String.valueOf((System.nanoTime() - _lockStart) / 1000));
+            }
+            try {
+                if (_writer != null) {
+                    StorageCallStats.increment();
+                    _pending = _writer.submitAccessToken(new OAuthTokenParams(clientId, uid, scope, accessToken, refreshToken, expiresIn, _refreshExpireTime, refresh));
+                } else {
+                    _token = StorageBatchHelper.saveOrUpdateAccessToken(__storage(), clientId, uid, scope, accessToken, refreshToken, expiresIn, _refreshExpireTime, refresh);
+                }
+            } finally {
+                _lock.unlock();
+            }
+            if (_pending != null) {
+                _token = _writer.await(_pending);
+            }
+        } finally {
+            _span.end();
+        }
+        // 组提交写入已在批次完成时清除, 此处覆盖直接写入(含刷新凭证有效期内仅轮换刷新凭证)的情况
+        if (_pending == null && __userTokenMisses != null) {
+            __userTokenMisses.clear(_token);
+        }
+        return _token;
+    }
+
+    private OAuthCode __saveOrUpdateAuthCode(String code, String redirectUri, String clientId, String uid, String scope) throws Exception {
+        TraceSpan _span = __tracer.startSpan("oauth.save_auth_code");
+        try {
+            if (__groupCommitWriter != null) {
+                StorageCallStats.increment();
+                return __groupCommitWriter.saveOrUpdateAuthCode(new OAuthCode(code, redirectUri, clientId, uid, scope));
+            }
+            return __storage().saveOrUpdateAuthCode(code, redirectUri, clientId, uid, scope);
+        } finally {
+            _span.end();
+        }
+    }
+
     public IOAuthClientHelper bindClientHelper(final String clientId, final String clientSecret) throws Exception {
         if (StringUtils.isBlank(clientId)) {
             throw new NullArgumentException("clientId");
@@ -113,23 +614,27 @@ public class OAuth implements IModule, IOAuth {
         //
         return new IOAuthClientHelper() {
 
-            private OAuthClient _clientVO = __moduleCfg.getTokenStorageAdapter().findClientById(clientId);
+            private final Lazy<OAuthClient> _clientVO = __lazy(new Callable<OAuthClient>() {
+                public OAuthClient call() throws Exception {
+                    return __findClientById(clientId);
+                }
+            });
 
             public OAuthClient getOAuthClient() {
-                return _clientVO;
+                return _clientVO.get();
             }
 
             public boolean checkClientId() {
-                return _clientVO != null;
+                return _clientVO.get() != null;
             }
 
             public boolean checkClientSecret() {
-                return _clientVO != null && StringUtils.equals(clientSecret, _clientVO.getSecretKey());
+                return _clientVO.get() != null && StringUtils.equals(clientSecret, _clientVO.get().getSecretKey());
             }
 
             public OAuthToken createOrUpdateAccessToken() throws Exception {
-                if (_clientVO != null) {
-                    return __moduleCfg.getTokenStorageAdapter().saveOrUpdateClientAccessToken(clientId, __moduleCfg.getTokenGenerator().accessToken(), OAuth.get().getModuleCfg().getAccessTokenExpireIn());
+                if (_clientVO.get() != null) {
+                    return __onClientTokenIssued(__storage().saveOrUpdateClientAccessToken(clientId, __accessToken(clientId, null, null), OAuth.get().getModuleCfg().getAccessTokenExpireIn()));
                 }
                 return null;
             }
@@ -141,29 +646,37 @@ public class OAuth implements IModule, IOAuth {
     public IOAuthAuthzHelper bindAuthzHelper(final String clientId, final String uid) throws Exception {
         return new IOAuthAuthzHelper() {
 
-            private OAuthClient _clientVO = __moduleCfg.getTokenStorageAdapter().findClientById(clientId);
+            private final Lazy<OAuthClientUser> _clientUserVO = __prefetch(new Callable<OAuthClientUser>() {
+                public OAuthClientUser call() throws Exception {
+                    return __moduleCfg.getTokenStorageAdapter().findUser(clientId, uid);
+                }
+            });
 
-            private OAuthClientUser _clientUserVO = __moduleCfg.getTokenStorageAdapter().findUser(clientId, uid);
+            private final Lazy<OAuthClient> _clientVO = __lazy(new Callable<OAuthClient>() {
+                public OAuthClient call() throws Exception {
+                    return __findClientById(clientId);
+                }
+            });
 
             public OAuthClient getOAuthClient() {
-                return _clientVO;
+                return _clientVO.get();
             }
 
             public OAuthClientUser getOAuthClientUser() {
-                return _clientUserVO;
+                return _clientUserVO.get();
             }
 
             public boolean checkClientId() {
-                return _clientUserVO != null && StringUtils.isNotBlank(_clientUserVO.getClientId());
+                return _clientUserVO.get() != null && StringUtils.isNotBlank(_clientUserVO.get().getClientId());
             }
 
             public boolean checkUserNeedAuth() {
-                return _clientUserVO == null || !BlurObject.bind(_clientUserVO.getIsAuthorized()).toBooleanValue();
+                return _clientUserVO.get() == null || !BlurObject.bind(_clientUserVO.get().getIsAuthorized()).toBooleanValue();
             }
 
             public OAuthCode createOrUpdateAuthCode(String redirectUri, String scope) throws Exception {
-                if (_clientUserVO != null) {
-                    return __moduleCfg.getTokenStorageAdapter().saveOrUpdateAuthCode(__moduleCfg.getTokenGenerator().authorizationCode(), redirectUri, clientId, uid, scope);
+                if (_clientUserVO.get() != null) {
+                    return __saveOrUpdateAuthCode(__authorizationCode(), redirectUri, clientId, uid, scope);
                 }
                 return null;
             }
@@ -185,12 +698,20 @@ public class OAuth implements IModule, IOAuth {
         //
         return new IOAuthTokenHelper() {
 
-            private OAuthClient _clientVO = __moduleCfg.getTokenStorageAdapter().findClientById(clientId);
+            private final Lazy<OAuthCode> _authzCode = __prefetch(new Callable<OAuthCode>() {
+                public OAuthCode call() throws Exception {
+                    return __moduleCfg.getTokenStorageAdapter().findAuthCode(clientId, code);
+                }
+            });
 
-            private OAuthCode _authzCode = __moduleCfg.getTokenStorageAdapter().findAuthCode(clientId, code);
+            private final Lazy<OAuthClient> _clientVO = __lazy(new Callable<OAuthClient>() {
+                public OAuthClient call() throws Exception {
+                    return __findClientById(clientId);
+                }
+            });
 
             public OAuthClient getOAuthClient() {
-                return _clientVO;
+                return _clientVO.get();
             }
 
             public OAuthClientUser getOAuthClientUser() {
@@ -198,19 +719,19 @@ public class OAuth implements IModule, IOAuth {
             }
 
             public OAuthCode getOAuthCode() {
-                return _authzCode;
+                return _authzCode.get();
             }
 
             public boolean checkClientId() {
-                return _clientVO != null;
+                return _clientVO.get() != null;
             }
 
             public boolean checkClientSecret() {
-                return _clientVO != null && StringUtils.equals(clientSecret, _clientVO.getSecretKey());
+                return _clientVO.get() != null && StringUtils.equals(clientSecret, _clientVO.get().getSecretKey());
             }
 
             public boolean checkAuthCode() {
-                return _authzCode != null;
+                return _authzCode.get() != null;
             }
 
             public boolean checkAuthUser() {
@@ -230,12 +751,12 @@ public class OAuth implements IModule, IOAuth {
             }
 
             public OAuthSnsToken createOrUpdateAccessToken() throws Exception {
-                if (_clientVO != null && _authzCode != null) {
-                    return __moduleCfg.getTokenStorageAdapter()
-                            .saveOrUpdateAccessToken(clientId, _authzCode.getUid(), _authzCode.getScope(),
-                                    __moduleCfg.getTokenGenerator().accessToken(),
-                                    __moduleCfg.getTokenGenerator().refreshToken(),
-                                    OAuth.get().getModuleCfg().getAccessTokenExpireIn(), false);
+                if (_clientVO.get() != null && _authzCode.get() != null) {
+                    // 授权码仅可换取一次, 先消费再签发, 并发重复换取时仅一方成功
+                    if (!__consumeAuthCode(clientId, code)) {
+                        return null;
+                    }
+                    return __createUserAccessToken(clientId, _authzCode.get().getUid(), _authzCode.get().getScope());
                 }
                 return null;
             }
@@ -261,12 +782,16 @@ public class OAuth implements IModule, IOAuth {
         //
         return new IOAuthTokenHelper() {
 
-            private OAuthClient _clientVO = __moduleCfg.getTokenStorageAdapter().findClientById(clientId);
+            private final Lazy<OAuthClient> _clientVO = __lazy(new Callable<OAuthClient>() {
+                public OAuthClient call() throws Exception {
+                    return __findClientById(clientId);
+                }
+            });
 
             private String _uid;
 
             public OAuthClient getOAuthClient() {
-                return _clientVO;
+                return _clientVO.get();
             }
 
             public OAuthClientUser getOAuthClientUser() {
@@ -278,11 +803,11 @@ public class OAuth implements IModule, IOAuth {
             }
 
             public boolean checkClientId() {
-                return _clientVO != null;
+                return _clientVO.get() != null;
             }
 
             public boolean checkClientSecret() {
-                return _clientVO != null && StringUtils.equals(clientSecret, _clientVO.getSecretKey());
+                return _clientVO.get() != null && StringUtils.equals(clientSecret, _clientVO.get().getSecretKey());
             }
 
             public boolean checkAuthCode() {
@@ -313,12 +838,8 @@ public class OAuth implements IModule, IOAuth {
             }
 
             public OAuthSnsToken createOrUpdateAccessToken() throws Exception {
-                if (_clientVO != null && _uid != null) {
-                    return __moduleCfg.getTokenStorageAdapter()
-                            .saveOrUpdateAccessToken(clientId, _uid, scope,
-                                    __moduleCfg.getTokenGenerator().accessToken(),
-                                    __moduleCfg.getTokenGenerator().refreshToken(),
-                                    OAuth.get().getModuleCfg().getAccessTokenExpireIn(), false);
+                if (_clientVO.get() != null && _uid != null) {
+                    return __createUserAccessToken(clientId, _uid, scope);
                 }
                 return null;
             }
@@ -332,17 +853,29 @@ public class OAuth implements IModule, IOAuth {
         if (StringUtils.isBlank(refreshToken)) {
             throw new NullArgumentException("refreshToken");
         }
+        // 相同刷新凭证的并发或宽限期内重复请求共享同一次刷新结果
+        final String _flightKey = clientId + "|" + refreshToken;
         //
         return new IOAuthTokenHelper() {
 
-            private OAuthClientUser _clientUserVO = __moduleCfg.getTokenStorageAdapter().findUserByRefreshToken(clientId, refreshToken);
+            private final Lazy<OAuthClientUser> _clientUserVO = __lazy(new Callable<OAuthClientUser>() {
+                public OAuthClientUser call() throws Exception {
+                    return __storage().findUserByRefreshToken(clientId, refreshToken);
+                }
+            });
+
+            private final Lazy<Boolean> _shared = __lazy(new Callable<Boolean>() {
+                public Boolean call() throws Exception {
+                    return __refreshFlights.isShared(_flightKey);
+                }
+            });
 
             public OAuthClient getOAuthClient() {
                 throw new UnsupportedOperationException();
             }
 
             public OAuthClientUser getOAuthClientUser() {
-                return _clientUserVO;
+                return _clientUserVO.get();
             }
 
             public OAuthCode getOAuthCode() {
@@ -350,7 +883,7 @@ public class OAuth implements IModule, IOAuth {
             }
 
             public boolean checkClientId() {
-                return _clientUserVO != null;
+                return _shared.get() || _clientUserVO.get() != null;
             }
 
             public boolean checkClientSecret() {
@@ -366,39 +899,41 @@ public class OAuth implements IModule, IOAuth {
             }
 
             public boolean isExpiredRefreshToken() {
-                if (_clientUserVO != null) {
-                    int _dayNum = 90;
-                    switch (_clientUserVO.getRefreshCount()) {
-                        case 0:
-                            _dayNum = 7;
-                            break;
-                        case 1:
-                            _dayNum = 30;
-                            break;
-                    }
-                    return System.currentTimeMillis() - _clientUserVO.getLastModifyTime() >= DateTimeUtils.DAY * _dayNum;
+                if (_shared.get()) {
+                    return false;
                 }
-                return true;
+                return _clientUserVO.get() == null || __moduleCfg.getRefreshPolicy().isExpired(_clientUserVO.get(), System.currentTimeMillis());
             }
 
             public boolean checkRefreshToken() {
-                return _clientUserVO != null;
+                return _shared.get() || _clientUserVO.get() != null;
             }
 
             public OAuthSnsToken refreshAccessToken() throws Exception {
-                if (_clientUserVO != null) {
-                    if (System.currentTimeMillis() - _clientUserVO.getLastModifyTime() < _clientUserVO.getExpiresIn() * 1000) {
-                        return __moduleCfg.getTokenStorageAdapter()
-                                .saveOrUpdateAccessToken(clientId, _clientUserVO.getUid(), null, null, __moduleCfg.getTokenGenerator().refreshToken(), 0, true);
-                    } else {
-                        return __moduleCfg.getTokenStorageAdapter()
-                                .saveOrUpdateAccessToken(clientId, _clientUserVO.getUid(), _clientUserVO.getScope(),
-                                        __moduleCfg.getTokenGenerator().accessToken(),
-                                        __moduleCfg.getTokenGenerator().refreshToken(),
-                                        OAuth.get().getModuleCfg().getAccessTokenExpireIn(), true);
-                    }
+                TraceSpan _span = __tracer.startSpan("oauth.refresh_access_token");
+                if (_span.isRecording()) {
+                    _span.setAttribute("oauth.shared", String.valueOf(_shared.get()));
+                }
+                try {
+                    return __refreshFlights.execute(_flightKey, new Callable<OAuthSnsToken>() {
+                        public OAuthSnsToken call() throws Exception {
+                            // 检查时存在的共享结果可能已结束(宽限期已过或前一次刷新失败), 此时由本次调用执行刷新, 须重新校验刷新凭证
+                            if (_clientUserVO.get() != null && !__moduleCfg.getRefreshPolicy().isExpired(_clientUserVO.get(), System.currentTimeMillis())) {
+                                if (System.currentTimeMillis() - _clientUserVO.get().getLastModifyTime() < _clientUserVO.get().getExpiresIn() * 1000) {
+                                    return __saveOrUpdateAccessToken(clientId, _clientUserVO.get().getUid(), null, null, __moduleCfg.getTokenGenerator().refreshToken(), 0, _clientUserVO.get(), true);
+                                } else {
+                                    return __saveOrUpdateAccessToken(clientId, _clientUserVO.get().getUid(), _clientUserVO.get().getScope(),
+                                            __accessToken(clientId, _clientUserVO.get().getId(), _clientUserVO.get().getScope()),
+                                                    __moduleCfg.getTokenGenerator().refreshToken(),
+                                                    OAuth.get().getModuleCfg().getAccessTokenExpireIn(), _clientUserVO.get(), true);
+                                }
+                            }
+                            return null;
+                        }
+                    });
+                } finally {
+                    _span.end();
                 }
-                return null;
             }
 
             public OAuthSnsToken createOrUpdateAccessToken() {
@@ -410,12 +945,19 @@ public class OAuth implements IModule, IOAuth {
     //
 
     public IOAuthAccessResourceHelper bindAccessResourceHelper(final String accessToken) throws Exception {
+        if (__signedTokenGenerator != null) {
+            return __bindSignedAccessResourceHelper(accessToken);
+        }
         return new IOAuthAccessResourceHelper() {
 
-            private OAuthClient _clientVO = __moduleCfg.getTokenStorageAdapter().findClientByAccessToken(accessToken);
+            private final Lazy<OAuthClient> _clientVO = __lazy(new Callable<OAuthClient>() {
+                public OAuthClient call() throws Exception {
+                    return __findClientByAccessToken(accessToken);
+                }
+            });
 
             public OAuthClient getOAuthClient() {
-                return _clientVO;
+                return _clientVO.get();
             }
 
             public OAuthClientUser getOAuthClientUser() {
@@ -423,43 +965,226 @@ public class OAuth implements IModule, IOAuth {
             }
 
             public boolean isExpiredAccessToken() {
-                return System.currentTimeMillis() - _clientVO.getLastModifyTime() >= _clientVO.getExpiresIn() * 1000;
+                return System.currentTimeMillis() - _clientVO.get().getLastModifyTime() >= _clientVO.get().getExpiresIn() * 1000;
             }
 
             public boolean checkAccessToken() {
-                return _clientVO != null;
+                return _clientVO.get() != null;
             }
 
             public boolean checkScope(String scope) {
                 throw new UnsupportedOperationException();
             }
+
+            public boolean checkScope(long scopeMask) {
+                throw new UnsupportedOperationException();
+            }
         };
     }
 
     public IOAuthAccessResourceHelper bindAccessResourceHelper(final String accessToken, final String openId) throws Exception {
+        if (__signedTokenGenerator != null) {
+            return __bindSignedAccessResourceHelper(accessToken, openId);
+        }
         return new IOAuthAccessResourceHelper() {
 
-            private OAuthClientUser _clientUserVO = __moduleCfg.getTokenStorageAdapter().findUserByAccessToken(accessToken);
+            private final Lazy<OAuthClientUser> _clientUserVO = __lazy(new Callable<OAuthClientUser>() {
+                public OAuthClientUser call() throws Exception {
+                    return __findUserByAccessToken(accessToken);
+                }
+            });
 
             public OAuthClient getOAuthClient() {
                 throw new UnsupportedOperationException();
             }
 
             public OAuthClientUser getOAuthClientUser() {
-                return _clientUserVO;
+                return _clientUserVO.get();
             }
 
             public boolean isExpiredAccessToken() {
-                return System.currentTimeMillis() - _clientUserVO.getLastModifyTime() >= _clientUserVO.getExpiresIn() * 1000;
+                return System.currentTimeMillis() - _clientUserVO.get().getLastModifyTime() >= _clientUserVO.get().getExpiresIn() * 1000;
             }
 
             public boolean checkAccessToken() {
-                return _clientUserVO != null && StringUtils.equals(_clientUserVO.getId(), openId);
+                return _clientUserVO.get() != null && StringUtils.equals(_clientUserVO.get().getId(), openId);
             }
 
             public boolean checkScope(String scope) {
-                return StringUtils.contains(_clientUserVO.getScope(), scope);
+                return checkScope(__scopeRegistry.mask(scope));
+            }
+
+            public boolean checkScope(long scopeMask) {
+                return ScopeRegistry.contains(__scopeRegistry.mask(_clientUserVO.get().getScope()), scopeMask);
             }
         };
     }
-}
+
+    private IOAuthAccessResourceHelper __bindSignedAccessResourceHelper(final String accessToken) throws Exception {
+        final OAuthTokenClaims _claims = __signedTokenGenerator.parseAccessToken(accessToken);
+        final boolean _revocationCheck = __moduleCfg.isTokenRevocationCheck();
+        //
+        return new IOAuthAccessResourceHelper() {
+
+            private final Lazy<OAuthClient> _clientVO = __lazy(new Callable<OAuthClient>() {
+                public OAuthClient call() throws Exception {
+                    if (_claims == null || _claims.isUserToken()) {
+                        return null;
+                    }
+                    return _revocationCheck ? __findClientByAccessToken(accessToken) : __findClientById(_claims.getClientId());
+                }
+            });
+
+            public OAuthClient getOAuthClient() {
+                return _clientVO.get();
+            }
+
+            public OAuthClientUser getOAuthClientUser() {
+                throw new UnsupportedOperationException();
+            }
+
+            public boolean isExpiredAccessToken() {
+                return _claims == null || _claims.isExpired();
+            }
+
+            public boolean checkAccessToken() {
+                if (_claims == null || _claims.isUserToken()) {
+                    return false;
+                }
+                return !_revocationCheck || _clientVO.get() != null && StringUtils.equals(_clientVO.get().getId(), _claims.getClientId());
+            }
+
+            public boolean checkScope(String scope) {
+                throw new UnsupportedOperationException();
+            }
+
+            public boolean checkScope(long scopeMask) {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    private IOAuthAccessResourceHelper __bindSignedAccessResourceHelper(final String accessToken, final String openId) throws Exception {
+        final OAuthTokenClaims _claims = __signedTokenGenerator.parseAccessToken(accessToken);
+        // 凭证校验及作用域检查仅依赖声明信息, 仅当需要检查撤销状态或获取用户授权信息(如: 用户主键)时才查询存储
+        final boolean _revocationCheck = __moduleCfg.isTokenRevocationCheck();
+        //
+        return new IOAuthAccessResourceHelper() {
+
+            private final Lazy<OAuthClientUser> _clientUserVO = __lazy(new Callable<OAuthClientUser>() {
+                public OAuthClientUser call() throws Exception {
+                    if (_claims == null || !_claims.isUserToken()) {
+                        return null;
+                    }
+                    OAuthClientUser _clientUser = __findUserByAccessToken(accessToken);
+                    return _clientUser != null && StringUtils.equals(_clientUser.getId(), _claims.getOpenId()) ? _clientUser : null;
+                }
+            });
+
+            public OAuthClient getOAuthClient() {
+                throw new UnsupportedOperationException();
+            }
+
+            public OAuthClientUser getOAuthClientUser() {
+                return _clientUserVO.get();
+            }
+
+            public boolean isExpiredAccessToken() {
+                return _claims == null || _claims.isExpired();
+            }
+
+            public boolean checkAccessToken() {
+                if (_claims == null || !_claims.isUserToken() || !StringUtils.equals(_claims.getOpenId(), openId)) {
+                    return false;
+                }
+                return !_revocationCheck || _clientUserVO.get() != null;
+            }
+
+            public boolean checkScope(String scope) {
+                return checkScope(__scopeRegistry.mask(scope));
+            }
+
+            public boolean checkScope(long scopeMask) {
+                return _claims != null && ScopeRegistry.contains(__scopeRegistry.mask(_claims.getScope()), scopeMask);
+            }
+        };
+    }
+
+    //
+
+    public Future<IOAuthClientHelper> bindClientHelperAsync(final String clientId, final String clientSecret) {
+        return getExecutorService().submit(new Callable<IOAuthClientHelper>() {
+            public IOAuthClientHelper call() throws Exception {
+                IOAuthClientHelper _clientHelper = bindClientHelper(clientId, clientSecret);
+                // 存储读取为延迟加载, 须在线程池中提前完成
+                _clientHelper.getOAuthClient();
+                return _clientHelper;
+            }
+        });
+    }
+
+    public Future<IOAuthAuthzHelper> bindAuthzHelperAsync(final String clientId, final String uid) {
+        return getExecutorService().submit(new Callable<IOAuthAuthzHelper>() {
+            public IOAuthAuthzHelper call() throws Exception {
+                IOAuthAuthzHelper _authzHelper = bindAuthzHelper(clientId, uid);
+                _authzHelper.getOAuthClient();
+                _authzHelper.getOAuthClientUser();
+                return _authzHelper;
+            }
+        });
+    }
+
+    public Future<IOAuthTokenHelper> bindTokenHelperAsync(final String clientId, final String clientSecret, final String code) {
+        return getExecutorService().submit(new Callable<IOAuthTokenHelper>() {
+            public IOAuthTokenHelper call() throws Exception {
+                IOAuthTokenHelper _tokenHelper = bindTokenHelper(clientId, clientSecret, code);
+                _tokenHelper.getOAuthClient();
+                _tokenHelper.getOAuthCode();
+                return _tokenHelper;
+            }
+        });
+    }
+
+    public Future<IOAuthTokenHelper> bindTokenHelperAsync(final String clientId, final String clientSecret, final String scope, final String username, final String passwd) {
+        return getExecutorService().submit(new Callable<IOAuthTokenHelper>() {
+            public IOAuthTokenHelper call() throws Exception {
+                IOAuthTokenHelper _tokenHelper = bindTokenHelper(clientId, clientSecret, scope, username, passwd);
+                // 客户端及用户身份验证涉及存储读取, 提前在线程池中完成
+                if (_tokenHelper.checkClientId()) {
+                    _tokenHelper.checkAuthUser();
+                }
+                return _tokenHelper;
+            }
+        });
+    }
+
+    public Future<IOAuthTokenHelper> bindTokenHelperAsync(final String clientId, final String refreshToken) {
+        return getExecutorService().submit(new Callable<IOAuthTokenHelper>() {
+            public IOAuthTokenHelper call() throws Exception {
+                IOAuthTokenHelper _tokenHelper = bindTokenHelper(clientId, refreshToken);
+                _tokenHelper.getOAuthClientUser();
+                return _tokenHelper;
+            }
+        });
+    }
+
+    public Future<IOAuthAccessResourceHelper> bindAccessResourceHelperAsync(final String accessToken) {
+        return getExecutorService().submit(new Callable<IOAuthAccessResourceHelper>() {
+            public IOAuthAccessResourceHelper call() throws Exception {
+                IOAuthAccessResourceHelper _resourceHelper = bindAccessResourceHelper(accessToken);
+                _resourceHelper.checkAccessToken();
+                return _resourceHelper;
+            }
+        });
+    }
+
+    public Future<IOAuthAccessResourceHelper> bindAccessResourceHelperAsync(final String accessToken, final String openId) {
+        return getExecutorService().submit(new Callable<IOAuthAccessResourceHelper>() {
+            public IOAuthAccessResourceHelper call() throws Exception {
+                IOAuthAccessResourceHelper _resourceHelper = bindAccessResourceHelper(accessToken, openId);
+                _resourceHelper.checkAccessToken();
+                return _resourceHelper;
+            }
+        });
+    }
+}
\ No newline at end of file
@@ -41,6 +41,10 @@ public class OAuthClientUser extends ValueObject<OAuthClientUser> {
 
     private String scope;
 
+    private Long refreshExpireTime;
+
+    private Long rotateTime;
+
     public OAuthClientUser() {
         super();
     }
@@ -116,4 +120,26 @@ public class OAuthClientUser extends ValueObject<OAuthClientUser> {
     public void setScope(String scope) {
         this.scope = scope;
     }
+
+    /**
+     * @return 刷新凭证到期时间(毫秒), 由刷新凭证有效期策略在令牌写入时计算
+     */
+    public Long getRefreshExpireTime() {
+        return refreshExpireTime;
+    }
+
+    public void setRefreshExpireTime(Long refreshExpireTime) {
+        this.refreshExpireTime = refreshExpireTime;
+    }
+
+    /**
+     * @return 访问凭证最后轮换时间(毫秒), 仅在签发新的访问凭证时更新, 用于计算上一个访问凭证的宽限期; 为null时按最后修改时间计算
+     */
+    public Long getRotateTime() {
+        return rotateTime;
+    }
+
+    public void setRotateTime(Long rotateTime) {
+        this.rotateTime = rotateTime;
+    }
 }
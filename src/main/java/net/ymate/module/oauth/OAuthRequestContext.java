@@ -0,0 +1,90 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * 请求范围内的OAuth访问上下文, 由访问凭证校验拦截器在校验通过后绑定至当前请求,
+ * 控制器及后续资源可直接复用已解析的访问凭证及已加载的应用/用户信息, 避免重复解析及存储查询
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/05/29 上午10:05
+ * @version 1.0
+ */
+public class OAuthRequestContext {
+
+    private static final String ATTR_NAME = OAuthRequestContext.class.getName();
+
+    private final String accessToken;
+
+    private final String openId;
+
+    private final IOAuth.IOAuthAccessResourceHelper resourceHelper;
+
+    /**
+     * @param request HttpServletRequest对象
+     * @return 返回绑定至当前请求的上下文, 若未经过访问凭证校验拦截器则返回null
+     */
+    public static OAuthRequestContext get(HttpServletRequest request) {
+        return request == null ? null : (OAuthRequestContext) request.getAttribute(ATTR_NAME);
+    }
+
+    /**
+     * @param request HttpServletRequest对象
+     * @param context 已通过校验的访问上下文
+     */
+    public static void bind(HttpServletRequest request, OAuthRequestContext context) {
+        request.setAttribute(ATTR_NAME, context);
+    }
+
+    public OAuthRequestContext(String accessToken, String openId, IOAuth.IOAuthAccessResourceHelper resourceHelper) {
+        this.accessToken = accessToken;
+        this.openId = openId;
+        this.resourceHelper = resourceHelper;
+    }
+
+    public String getAccessToken() {
+        return accessToken;
+    }
+
+    /**
+     * @return 返回用户唯一标识, 应用访问凭证上下文中为null
+     */
+    public String getOpenId() {
+        return openId;
+    }
+
+    /**
+     * @return 返回已完成校验的资源访问助手
+     */
+    public IOAuth.IOAuthAccessResourceHelper getResourceHelper() {
+        return resourceHelper;
+    }
+
+    /**
+     * @return 返回应用信息, 仅应用访问凭证上下文有效
+     */
+    public OAuthClient getOAuthClient() {
+        return resourceHelper.getOAuthClient();
+    }
+
+    /**
+     * @return 返回用户授权信息, 仅用户访问凭证上下文有效
+     */
+    public OAuthClientUser getOAuthClientUser() {
+        return resourceHelper.getOAuthClientUser();
+    }
+}
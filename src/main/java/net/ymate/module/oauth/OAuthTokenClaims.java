@@ -0,0 +1,88 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth;
+
+import java.io.Serializable;
+
+/**
+ * 自包含签名访问凭证中携带的声明信息, 用户访问凭证携带用户唯一标识(openId), 应用访问凭证不携带; 用户主键需通过存储查询获得
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/05/22 下午5:02
+ * @version 1.0
+ */
+public class OAuthTokenClaims implements Serializable {
+
+    private String clientId;
+
+    private String openId;
+
+    private String scope;
+
+    private long expireAt;
+
+    public OAuthTokenClaims(String clientId, String openId, String scope, long expireAt) {
+        this.clientId = clientId;
+        this.openId = openId;
+        this.scope = scope;
+        this.expireAt = expireAt;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
+
+    public String getOpenId() {
+        return openId;
+    }
+
+    public void setOpenId(String openId) {
+        this.openId = openId;
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public void setScope(String scope) {
+        this.scope = scope;
+    }
+
+    public long getExpireAt() {
+        return expireAt;
+    }
+
+    public void setExpireAt(long expireAt) {
+        this.expireAt = expireAt;
+    }
+
+    /**
+     * @return 返回是否为用户访问凭证(携带用户唯一标识)
+     */
+    public boolean isUserToken() {
+        return openId != null;
+    }
+
+    /**
+     * @return 返回凭证是否已过期
+     */
+    public boolean isExpired() {
+        return System.currentTimeMillis() >= expireAt;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth;
+
+import java.io.Serializable;
+
+/**
+ * 用户访问凭证存储参数, 用于批量存储令牌信息
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/05/24 下午2:15
+ * @version 1.0
+ */
+public class OAuthTokenParams implements Serializable {
+
+    private String clientId;
+
+    private String uid;
+
+    private String scope;
+
+    private String accessToken;
+
+    private String refreshToken;
+
+    private int expiresIn;
+
+    private long refreshExpireTime;
+
+    private boolean refresh;
+
+    public OAuthTokenParams(String clientId, String uid, String scope, String accessToken, String refreshToken, int expiresIn, long refreshExpireTime, boolean refresh) {
+        this.clientId = clientId;
+        this.uid = uid;
+        this.scope = scope;
+        this.accessToken = accessToken;
+        this.refreshToken = refreshToken;
+        this.expiresIn = expiresIn;
+        this.refreshExpireTime = refreshExpireTime;
+        this.refresh = refresh;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
+
+    public String getUid() {
+        return uid;
+    }
+
+    public void setUid(String uid) {
+        this.uid = uid;
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public void setScope(String scope) {
+        this.scope = scope;
+    }
+
+    public String getAccessToken() {
+        return accessToken;
+    }
+
+    public void setAccessToken(String accessToken) {
+        this.accessToken = accessToken;
+    }
+
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+
+    public int getExpiresIn() {
+        return expiresIn;
+    }
+
+    public void setExpiresIn(int expiresIn) {
+        this.expiresIn = expiresIn;
+    }
+
+    public long getRefreshExpireTime() {
+        return refreshExpireTime;
+    }
+
+    public void setRefreshExpireTime(long refreshExpireTime) {
+        this.refreshExpireTime = refreshExpireTime;
+    }
+
+    public boolean isRefresh() {
+        return refresh;
+    }
+
+    public void setRefresh(boolean refresh) {
+        this.refresh = refresh;
+    }
+}
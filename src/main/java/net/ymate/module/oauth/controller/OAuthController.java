@@ -23,8 +23,14 @@ import net.ymate.framework.webmvc.support.UserSessionBean;
 import net.ymate.module.oauth.IOAuth;
 import net.ymate.module.oauth.OAuth;
 import net.ymate.module.oauth.OAuthCode;
+import net.ymate.module.oauth.OAuthRequestContext;
 import net.ymate.module.oauth.OAuthSnsToken;
+import net.ymate.module.oauth.intercept.MetricsInterceptor;
 import net.ymate.module.oauth.intercept.SnsAccessTokenCheckInterceptor;
+import net.ymate.module.oauth.intercept.StorageCallStatsInterceptor;
+import net.ymate.module.oauth.intercept.TracingInterceptor;
+import net.ymate.module.oauth.support.TokenResponseWriter;
+import net.ymate.platform.core.beans.annotation.After;
 import net.ymate.platform.core.beans.annotation.Before;
 import net.ymate.platform.core.beans.annotation.ContextParam;
 import net.ymate.platform.core.beans.annotation.ParamItem;
@@ -56,6 +62,8 @@ import javax.servlet.http.HttpServletResponse;
  */
 @Controller
 @RequestMapping("/oauth2")
+@Before({StorageCallStatsInterceptor.class, MetricsInterceptor.class, TracingInterceptor.class})
+@After({StorageCallStatsInterceptor.class, MetricsInterceptor.class, TracingInterceptor.class})
 public class OAuthController {
 
     private OAuthResponse __doTokenToResponse(OAuthSnsToken token) throws OAuthSystemException {
@@ -68,7 +76,29 @@ public class OAuthController {
                 .buildJSONMessage();
     }
 
+    /**
+     * 开始新的请求处理步骤追踪片段, 持续至下一步骤开始或请求结束
+     */
+    private void __step(String name) {
+        OAuth.get().getTracer().step(name);
+    }
+
+    private IView __doTokenToView(String endpoint, OAuthSnsToken token) throws Exception {
+        __step("oauth.build_response");
+        if (OAuth.get().getModuleCfg().isTokenResponseStreaming(endpoint)) {
+            return TokenResponseWriter.write(WebContext.getResponse(), token.getAccessToken(), OAuth.get().getModuleCfg().getAccessTokenExpireIn(), token.getRefreshToken(), token.getScope(), token.getOpenId());
+        }
+        OAuthResponse _response = __doTokenToResponse(token);
+        return new HttpStatusView(_response.getResponseStatus(), false).writeBody(_response.getBody());
+    }
+
+    private void __countError(String error) {
+        OAuth.get().getMetrics().error(WebContext.getRequestContext().getRequestMapping(), error);
+        OAuth.get().getTracer().root().setAttribute("oauth.error", error);
+    }
+
     private OAuthResponse __responseBadRequest(String error) throws OAuthSystemException {
+        __countError(error);
         return OAuthASResponse
                 .errorResponse(HttpServletResponse.SC_BAD_REQUEST)
                 .setError(error)
@@ -76,6 +106,7 @@ public class OAuthController {
     }
 
     private OAuthResponse __toUnauthorizedClient() throws OAuthSystemException {
+        __countError(OAuthError.TokenResponse.UNAUTHORIZED_CLIENT);
         return OAuthASResponse
                 .errorResponse(HttpServletResponse.SC_UNAUTHORIZED)
                 .setError(OAuthError.TokenResponse.UNAUTHORIZED_CLIENT)
@@ -83,6 +114,7 @@ public class OAuthController {
     }
 
     private OAuthResponse __toBadRequestError(OAuthProblemException e) throws OAuthSystemException {
+        __countError(e.getError());
         return OAuthASResponse
                 .errorResponse(HttpServletResponse.SC_BAD_REQUEST)
                 .error(e)
@@ -97,16 +129,24 @@ public class OAuthController {
     public IView token() throws Exception {
         OAuthResponse _response = null;
         try {
+            __step("oauth.parse_request");
             OAuthTokenRequest _oauthRequest = new OAuthTokenRequest(WebContext.getRequest());
             GrantType _grantType = GrantType.valueOf(StringUtils.upperCase(_oauthRequest.getParam(org.apache.oltu.oauth2.common.OAuth.OAUTH_GRANT_TYPE)));
+            __step("oauth.check_client");
             IOAuth.IOAuthClientHelper _clientHelper = OAuth.get().bindClientHelper(_oauthRequest.getClientId(), _oauthRequest.getClientSecret());
             if (!_clientHelper.checkClientId()) {
                 _response = __responseBadRequest(OAuthError.TokenResponse.INVALID_CLIENT);
             } else if (!_clientHelper.checkClientSecret()) {
                 _response = __toUnauthorizedClient();
             } else if (GrantType.CLIENT_CREDENTIALS.equals(_grantType)) {
+                __step("oauth.issue_token");
+                String _accessToken = _clientHelper.createOrUpdateAccessToken().getAccessToken();
+                __step("oauth.build_response");
+                if (OAuth.get().getModuleCfg().isTokenResponseStreaming(TokenResponseWriter.ENDPOINT_TOKEN)) {
+                    return TokenResponseWriter.write(WebContext.getResponse(), _accessToken, OAuth.get().getModuleCfg().getAccessTokenExpireIn(), null, null, null);
+                }
                 _response = OAuthASResponse.tokenResponse(HttpServletResponse.SC_OK)
-                        .setAccessToken(_clientHelper.createOrUpdateAccessToken().getAccessToken())
+                        .setAccessToken(_accessToken)
                         .setExpiresIn(String.valueOf(OAuth.get().getModuleCfg().getAccessTokenExpireIn()))
                         .buildJSONMessage();
             } else {
@@ -132,6 +172,7 @@ public class OAuthController {
     public IView authorize(@RequestParam(defaultValue = "false") Boolean authorized) throws Exception {
         OAuthResponse _response = null;
         try {
+            __step("oauth.parse_request");
             HttpServletRequest _request = WebContext.getRequest();
             OAuthAuthzRequest _oauthRequest = new OAuthAuthzRequest(_request);
             ResponseType _responseType = ResponseType.valueOf(StringUtils.upperCase(_oauthRequest.getParam(org.apache.oltu.oauth2.common.OAuth.OAUTH_RESPONSE_TYPE)));
@@ -139,26 +180,30 @@ public class OAuthController {
             if (StringUtils.isBlank(_redirectURI)) {
                 _response = __responseBadRequest(IOAuth.Const.INVALID_REDIRECT_URI);
             } else {
+                __step("oauth.check_client");
                 String _uid = UserSessionBean.current().getUid();
                 IOAuth.IOAuthAuthzHelper _authzHelper = OAuth.get().bindAuthzHelper(_oauthRequest.getClientId(), _uid);
                 if (!_authzHelper.checkClientId()) {
                     _response = __responseBadRequest(OAuthError.TokenResponse.INVALID_CLIENT);
                 } else {
                     String _scope = _oauthRequest.getParam(org.apache.oltu.oauth2.common.OAuth.OAUTH_SCOPE);
-                    if (!IOAuth.Scope.verified(_scope)) {
+                    if (!OAuth.get().getScopeRegistry().verified(_scope)) {
                         _response = __responseBadRequest(OAuthError.CodeResponse.INVALID_SCOPE);
                     } else if (ResponseType.CODE.equals(_responseType)) {
                         String _state = _oauthRequest.getParam(org.apache.oltu.oauth2.common.OAuth.OAUTH_STATE);
                         if (WebUtils.isPost(_request)) {
+                            __step("oauth.verify_form_token");
                             if (TokenProcessHelper.getInstance().isTokenValid(_request, true)) {
                                 if (!authorized) {
+                                    __step("oauth.build_redirect");
                                     _response = OAuthASResponse.authorizationResponse(_request, HttpServletResponse.SC_FOUND)
                                             .location(_redirectURI)
                                             .setParam(org.apache.oltu.oauth2.common.OAuth.OAUTH_STATE, _state)
                                             .buildQueryMessage();
                                 } else {
+                                    __step("oauth.issue_code");
                                     OAuthCode _authzCode = _authzHelper.createOrUpdateAuthCode(_redirectURI, _scope);
-                                    //
+                                    __step("oauth.build_redirect");
                                     _response = OAuthASResponse.authorizationResponse(_request, HttpServletResponse.SC_FOUND)
                                             .location(_redirectURI)
                                             .setCode(_authzCode.getCode())
@@ -170,15 +215,18 @@ public class OAuthController {
                                 return new HttpStatusView(_response.getResponseStatus(), false).writeBody(_response.getBody());
                             }
                         } else {
-                            if (IOAuth.Scope.SNSAPI_USERINFO.equalsIgnoreCase(_scope) && _authzHelper.checkUserNeedAuth()) {
-                                // 若需要用户授权则跳转
+                            __step("oauth.check_user_auth");
+                            if (OAuth.get().getScopeRegistry().isConsentRequired(_scope) && _authzHelper.checkUserNeedAuth()) {
+                                // 若需要用户授权则跳转(按作用域掩码判断, 包含snsapi_userinfo的多作用域组合同样需要用户确认)
+                                __step("oauth.render_authorization");
                                 return View.jspView(OAuth.get().getModuleCfg().getAuthorizationView())
                                         .addAttribute("client_title", _authzHelper.getOAuthClient().getTitle())
                                         .addAttribute("client_icon", _authzHelper.getOAuthClient().getIconUrl())
                                         .addAttribute("client_domain", _authzHelper.getOAuthClient().getDomain());
                             } else {
+                                __step("oauth.issue_code");
                                 OAuthCode _authzCode = _authzHelper.createOrUpdateAuthCode(_redirectURI, _scope);
-                                //
+                                __step("oauth.build_redirect");
                                 _response = OAuthASResponse.authorizationResponse(_request, HttpServletResponse.SC_FOUND)
                                         .location(_redirectURI)
                                         .setCode(_authzCode.getCode())
@@ -209,9 +257,11 @@ public class OAuthController {
     public IView accessToken() throws Exception {
         OAuthResponse _response = null;
         try {
+            __step("oauth.parse_request");
             OAuthTokenRequest _oauthRequest = new OAuthTokenRequest(WebContext.getRequest());
             GrantType _grantType = GrantType.valueOf(StringUtils.upperCase(_oauthRequest.getParam(org.apache.oltu.oauth2.common.OAuth.OAUTH_GRANT_TYPE)));
             if (GrantType.AUTHORIZATION_CODE.equals(_grantType)) {
+                __step("oauth.check_client");
                 IOAuth.IOAuthTokenHelper _tokenHelper = OAuth.get().bindTokenHelper(_oauthRequest.getClientId(), _oauthRequest.getClientSecret(), _oauthRequest.getParam(org.apache.oltu.oauth2.common.OAuth.OAUTH_CODE));
                 if (!_tokenHelper.checkClientId()) {
                     _response = __responseBadRequest(OAuthError.TokenResponse.INVALID_CLIENT);
@@ -222,13 +272,20 @@ public class OAuthController {
                 } else if (!StringUtils.equals(_oauthRequest.getRedirectURI(), _tokenHelper.getOAuthCode().getRedirectUri())) {
                     _response = __responseBadRequest(IOAuth.Const.REDIRECT_URI_MISMATCH);
                 } else {
-                    _response = __doTokenToResponse(_tokenHelper.createOrUpdateAccessToken());
+                    __step("oauth.issue_token");
+                    OAuthSnsToken _token = _tokenHelper.createOrUpdateAccessToken();
+                    if (_token != null) {
+                        return __doTokenToView(TokenResponseWriter.ENDPOINT_ACCESS_TOKEN, _token);
+                    }
+                    // 授权码已被使用(如并发重复换取)
+                    _response = __responseBadRequest(OAuthError.TokenResponse.INVALID_GRANT);
                 }
             } else if (GrantType.PASSWORD.equals(_grantType)) {
                 String _scope = _oauthRequest.getParam(org.apache.oltu.oauth2.common.OAuth.OAUTH_SCOPE);
-                if (!IOAuth.Scope.verified(_scope)) {
+                if (!OAuth.get().getScopeRegistry().verified(_scope)) {
                     _response = __responseBadRequest(OAuthError.CodeResponse.INVALID_SCOPE);
                 } else {
+                    __step("oauth.check_client");
                     IOAuth.IOAuthTokenHelper _tokenHelper = OAuth.get().bindTokenHelper(_oauthRequest.getClientId(), _oauthRequest.getClientSecret(), _scope, _oauthRequest.getUsername(), _oauthRequest.getPassword());
                     if (!_tokenHelper.checkClientId()) {
                         _response = __responseBadRequest(OAuthError.TokenResponse.INVALID_CLIENT);
@@ -237,7 +294,8 @@ public class OAuthController {
                     } else if (!_tokenHelper.checkAuthUser()) {
                         _response = __responseBadRequest(IOAuth.Const.INVALID_USER);
                     } else {
-                        _response = __doTokenToResponse(_tokenHelper.createOrUpdateAccessToken());
+                        __step("oauth.issue_token");
+                        return __doTokenToView(TokenResponseWriter.ENDPOINT_ACCESS_TOKEN, _tokenHelper.createOrUpdateAccessToken());
                     }
                 }
             } else {
@@ -259,24 +317,34 @@ public class OAuthController {
     public IView refreshToken() throws Exception {
         OAuthResponse _response = null;
         try {
+            __step("oauth.parse_request");
             OAuthTokenRequest _oauthRequest = new OAuthTokenRequest(WebContext.getRequest());
             GrantType _grantType = GrantType.valueOf(StringUtils.upperCase(_oauthRequest.getParam(org.apache.oltu.oauth2.common.OAuth.OAUTH_GRANT_TYPE)));
+            __step("oauth.check_client");
             IOAuth.IOAuthTokenHelper _tokenHelper = OAuth.get().bindTokenHelper(_oauthRequest.getClientId(), _oauthRequest.getParam(org.apache.oltu.oauth2.common.OAuth.OAUTH_REFRESH_TOKEN));
             if (!_tokenHelper.checkClientId()) {
                 _response = __responseBadRequest(OAuthError.TokenResponse.INVALID_CLIENT);
             } else if (GrantType.REFRESH_TOKEN.equals(_grantType)) {
                 if (!_tokenHelper.checkRefreshToken()) {
+                    __countError(OAuthError.ResourceResponse.INVALID_TOKEN);
                     _response = OAuthASResponse
                             .errorResponse(HttpServletResponse.SC_BAD_REQUEST)
                             .setError(OAuthError.ResourceResponse.INVALID_TOKEN)
                             .buildJSONMessage();
                 } else if (_tokenHelper.isExpiredRefreshToken()) {
+                    __countError(OAuthError.ResourceResponse.EXPIRED_TOKEN);
                     _response = OAuthASResponse
                             .errorResponse(HttpServletResponse.SC_BAD_REQUEST)
                             .setError(OAuthError.ResourceResponse.EXPIRED_TOKEN)
                             .buildJSONMessage();
                 } else {
-                    _response = __doTokenToResponse(_tokenHelper.refreshAccessToken());
+                    __step("oauth.issue_token");
+                    OAuthSnsToken _token = _tokenHelper.refreshAccessToken();
+                    if (_token != null) {
+                        return __doTokenToView(TokenResponseWriter.ENDPOINT_REFRESH_TOKEN, _token);
+                    }
+                    // 校验时可共享的刷新结果在执行前已结束且刷新凭证已失效
+                    _response = __responseBadRequest(OAuthError.TokenResponse.INVALID_GRANT);
                 }
             } else {
                 _response = __responseBadRequest(OAuthError.TokenResponse.UNSUPPORTED_GRANT_TYPE);
@@ -311,7 +379,10 @@ public class OAuthController {
     @ContextParam(@ParamItem(key = IOAuth.Const.SCOPE, value = IOAuth.Scope.SNSAPI_USERINFO))
     public IView userinfo(@RequestParam(IOAuth.Const.ACCESS_TOKEN) String accountToken, @RequestParam(IOAuth.Const.OPEN_ID) String openId) throws Exception {
         try {
-            return View.jsonView(OAuth.get().getModuleCfg().getUserInfoAdapter().getUserInfo(OAuth.get().bindAccessResourceHelper(accountToken, openId).getOAuthClientUser().getUid()));
+            // 优先复用访问凭证校验拦截器已加载的用户授权信息
+            OAuthRequestContext _context = OAuthRequestContext.get(WebContext.getRequest());
+            IOAuth.IOAuthAccessResourceHelper _resourceHelper = _context != null ? _context.getResourceHelper() : OAuth.get().bindAccessResourceHelper(accountToken, openId);
+            return View.jsonView(OAuth.get().getModuleCfg().getUserInfoAdapter().getUserInfo(_resourceHelper.getOAuthClientUser().getUid()));
         } catch (Exception e) {
             OAuthResponse _response = __responseBadRequest(IOAuth.Const.INVALID_USER);
             return new HttpStatusView(_response.getResponseStatus(), false).writeBody(_response.getBody());
@@ -0,0 +1,319 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.impl;
+
+import net.ymate.module.oauth.*;
+import net.ymate.module.oauth.support.StorageBatchHelper;
+import net.ymate.module.oauth.support.TimedLruCache;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 令牌存储适配器缓存装饰器, 以读穿透方式缓存按访问凭证查询的结果, 缓存有效期不超过令牌剩余有效期;
+ * 令牌记录被更新时递增该记录的版本号, 版本号早于记录当前版本的缓存项(包括多次轮换前的历史凭证)在读取时视为失效,
+ * 从而避免并发读取将更新前加载的旧记录写回缓存; 过期数据清理委派给被装饰的适配器(不支持时不做任何处理),
+ * 缓存项有效期不超过令牌剩余有效期, 无需随之失效
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/05/20 上午11:05
+ * @version 1.0
+ */
+public class CachingStorageAdapter implements IOAuthBatchStorageAdapter, IOAuthPurgeableStorageAdapter, IOAuthRefreshExpireStorageAdapter, IOAuthClientStorageAdapter, IOAuthOpenIdStorageAdapter, IOAuthAuthCodeConsumableStorageAdapter {
+
+    private static final Log _LOG = LogFactory.getLog(CachingStorageAdapter.class);
+
+    private final IOAuthStorageAdapter __delegate;
+
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final TimedLruCache<String, Cached<OAuthClient>> __clientTokenCache;
+
+    private final TimedLruCache<String, Cached<OAuthClientUser>> __userTokenCache;
+
+    private final long __timeout;
+
+    /**
+     * 全局版本时钟, 每次令牌记录更新时递增
+     */
+    private final AtomicLong __clock = new AtomicLong();
+
+    /**
+     * 按记录(clientId或clientId+uid)分段的最后更新版本号, 分段冲突仅导致额外的缓存未命中
+     */
+    private final AtomicLongArray __clientGenerations = new AtomicLongArray(GENERATION_STRIPES);
+
+    private final AtomicLongArray __userGenerations = new AtomicLongArray(GENERATION_STRIPES);
+
+    /**
+     * @param delegate        被装饰的令牌存储适配器
+     * @param cacheNamePrefix 缓存名称前缀
+     * @param maxSize         缓存最大条目数量
+     * @param timeout         缓存项最大存活时间, 单位(秒), 小于等于0表示仅受令牌有效期约束
+     */
+    public CachingStorageAdapter(IOAuthStorageAdapter delegate, String cacheNamePrefix, int maxSize, int timeout) {
+        if (delegate == null) {
+            throw new NullPointerException("delegate");
+        }
+        __delegate = delegate;
+        __clientTokenCache = new TimedLruCache<String, Cached<OAuthClient>>(StringUtils.trimToEmpty(cacheNamePrefix).concat("oauth_client_tokens"), maxSize);
+        __userTokenCache = new TimedLruCache<String, Cached<OAuthClientUser>>(StringUtils.trimToEmpty(cacheNamePrefix).concat("oauth_user_tokens"), maxSize);
+        __timeout = timeout > 0 ? timeout * 1000L : 0;
+    }
+
+    /**
+     * @return 返回被装饰的令牌存储适配器
+     */
+    public IOAuthStorageAdapter getDelegate() {
+        return __delegate;
+    }
+
+    public void init(IOAuth owner) {
+        __delegate.init(owner);
+        //
+        _LOG.info("Token cache [" + __clientTokenCache.getName() + ", " + __userTokenCache.getName() + "] enabled.");
+    }
+
+    public void destroy() {
+        __clientTokenCache.clear();
+        __userTokenCache.clear();
+        __delegate.destroy();
+    }
+
+    private long __expireAt(Long lastModifyTime, Integer expiresIn) {
+        if (lastModifyTime == null || expiresIn == null) {
+            return 0;
+        }
+        long _expireAt = lastModifyTime + expiresIn * 1000L;
+        if (__timeout > 0) {
+            _expireAt = Math.min(_expireAt, System.currentTimeMillis() + __timeout);
+        }
+        return _expireAt;
+    }
+
+    private static int __stripe(String clientId, String uid) {
+        int _hash = StringUtils.trimToEmpty(clientId).hashCode() * 31 + StringUtils.trimToEmpty(uid).hashCode();
+        _hash ^= (_hash >>> 16);
+        return _hash & (GENERATION_STRIPES - 1);
+    }
+
+    /**
+     * 标记记录已更新: 在被装饰适配器写入完成后调用, 此前开始加载的读取结果均不再有效
+     */
+    private void __bump(AtomicLongArray generations, int stripe) {
+        long _generation = __clock.incrementAndGet();
+        while (true) {
+            long _current = generations.get(stripe);
+            if (_current >= _generation || generations.compareAndSet(stripe, _current, _generation)) {
+                break;
+            }
+        }
+    }
+
+    private void __bumpUser(OAuthSnsToken token) {
+        __bump(__userGenerations, __stripe(token.getClientId(), token.getUid()));
+        // 提前释放新旧凭证对应的缓存项, 更早轮换的历史凭证在下次读取时按版本号失效
+        __userTokenCache.remove(token.getAccessToken());
+        __userTokenCache.remove(token.getLastAccessToken());
+    }
+
+    /**
+     * 使指定访问凭证的缓存项失效
+     *
+     * @param accessToken 访问凭证
+     */
+    public void invalidate(String accessToken) {
+        __clientTokenCache.remove(accessToken);
+        __userTokenCache.remove(accessToken);
+    }
+
+    public OAuthClient findClientById(String clientId) throws Exception {
+        return __delegate.findClientById(clientId);
+    }
+
+    public void registerClient(OAuthClient client) throws Exception {
+        __clientStorage().registerClient(client);
+        __bump(__clientGenerations, __stripe(client.getId(), null));
+    }
+
+    public void removeClient(String clientId) throws Exception {
+        __clientStorage().removeClient(clientId);
+        __bump(__clientGenerations, __stripe(clientId, null));
+    }
+
+    public boolean consumeAuthCode(String clientId, String authzCode) throws Exception {
+        if (__delegate instanceof IOAuthAuthCodeConsumableStorageAdapter) {
+            return ((IOAuthAuthCodeConsumableStorageAdapter) __delegate).consumeAuthCode(clientId, authzCode);
+        }
+        throw new UnsupportedOperationException(__delegate.getClass().getName() + " does not implement IOAuthAuthCodeConsumableStorageAdapter.");
+    }
+
+    public String allocateOpenId(String clientId, String uid) throws Exception {
+        if (__delegate instanceof IOAuthOpenIdStorageAdapter) {
+            return ((IOAuthOpenIdStorageAdapter) __delegate).allocateOpenId(clientId, uid);
+        }
+        throw new UnsupportedOperationException(__delegate.getClass().getName() + " does not implement IOAuthOpenIdStorageAdapter.");
+    }
+
+    private IOAuthClientStorageAdapter __clientStorage() {
+        if (__delegate instanceof IOAuthClientStorageAdapter) {
+            return (IOAuthClientStorageAdapter) __delegate;
+        }
+        throw new UnsupportedOperationException(__delegate.getClass().getName() + " does not implement IOAuthClientStorageAdapter.");
+    }
+
+    public List<OAuthClient> listClients() throws Exception {
+        return __delegate.listClients();
+    }
+
+    public OAuthClient findClientByAccessToken(String accessToken) throws Exception {
+        Cached<OAuthClient> _cached = __clientTokenCache.get(accessToken);
+        if (_cached != null) {
+            if (_cached.generation >= __clientGenerations.get(__stripe(_cached.value.getId(), null))) {
+                return _cached.value;
+            }
+            __clientTokenCache.remove(accessToken);
+        }
+        // 版本号须在加载前获取, 加载期间发生的更新将使本次写入的缓存项在读取时失效
+        long _generation = __clock.get();
+        OAuthClient _client = __delegate.findClientByAccessToken(accessToken);
+        if (_client != null) {
+            __clientTokenCache.put(accessToken, new Cached<OAuthClient>(_client, _generation), __expireAt(_client.getLastModifyTime(), _client.getExpiresIn()));
+        }
+        return _client;
+    }
+
+    public OAuthToken saveOrUpdateClientAccessToken(String clientId, String accessToken, int expiresIn) throws Exception {
+        OAuthToken _token = __delegate.saveOrUpdateClientAccessToken(clientId, accessToken, expiresIn);
+        __bump(__clientGenerations, __stripe(clientId, null));
+        __clientTokenCache.remove(accessToken);
+        if (_token != null) {
+            __clientTokenCache.remove(_token.getLastAccessToken());
+        }
+        return _token;
+    }
+
+    public OAuthCode saveOrUpdateAuthCode(String code, String redirectUri, String clientId, String uid, String scope) throws Exception {
+        return __delegate.saveOrUpdateAuthCode(code, redirectUri, clientId, uid, scope);
+    }
+
+    public OAuthCode findAuthCode(String clientId, String authzCode) throws Exception {
+        return __delegate.findAuthCode(clientId, authzCode);
+    }
+
+    public OAuthSnsToken saveOrUpdateAccessToken(String clientId, String uid, String scope, String accessToken, String refreshToken, int expiresIn, boolean refresh) throws Exception {
+        OAuthSnsToken _token = __delegate.saveOrUpdateAccessToken(clientId, uid, scope, accessToken, refreshToken, expiresIn, refresh);
+        if (_token != null) {
+            __bumpUser(_token);
+        }
+        return _token;
+    }
+
+    public OAuthSnsToken saveOrUpdateAccessToken(String clientId, String uid, String scope, String accessToken, String refreshToken, int expiresIn, long refreshExpireTime, boolean refresh) throws Exception {
+        OAuthSnsToken _token = StorageBatchHelper.saveOrUpdateAccessToken(__delegate, clientId, uid, scope, accessToken, refreshToken, expiresIn, refreshExpireTime, refresh);
+        if (_token != null) {
+            // 无论访问凭证是否轮换, 用户令牌记录均已变化, 该记录对应的全部缓存项均需失效
+            __bumpUser(_token);
+        }
+        return _token;
+    }
+
+    public List<OAuthCode> saveOrUpdateAuthCodes(List<OAuthCode> authCodes) throws Exception {
+        return StorageBatchHelper.saveOrUpdateAuthCodes(__delegate, authCodes);
+    }
+
+    public List<OAuthSnsToken> saveOrUpdateAccessTokens(List<OAuthTokenParams> tokens) throws Exception {
+        if (!(__delegate instanceof IOAuthBatchStorageAdapter)) {
+            // 被装饰适配器逐条写入, 每条写入后立即失效缓存, 以免后续条目失败时已写入条目的缓存项未失效
+            List<OAuthSnsToken> _results = new ArrayList<OAuthSnsToken>(tokens.size());
+            for (OAuthTokenParams _token : tokens) {
+                _results.add(saveOrUpdateAccessToken(_token.getClientId(), _token.getUid(), _token.getScope(), _token.getAccessToken(), _token.getRefreshToken(), _token.getExpiresIn(), _token.getRefreshExpireTime(), _token.isRefresh()));
+            }
+            return _results;
+        }
+        List<OAuthSnsToken> _tokens = StorageBatchHelper.saveOrUpdateAccessTokens(__delegate, tokens);
+        for (OAuthSnsToken _token : _tokens) {
+            if (_token != null) {
+                __bumpUser(_token);
+            }
+        }
+        return _tokens;
+    }
+
+    public OAuthClientUser findUser(String clientId, String uid) throws Exception {
+        return __delegate.findUser(clientId, uid);
+    }
+
+    public OAuthClientUser findUserByAccessToken(String accessToken) throws Exception {
+        Cached<OAuthClientUser> _cached = __userTokenCache.get(accessToken);
+        if (_cached != null) {
+            if (_cached.generation >= __userGenerations.get(__stripe(_cached.value.getClientId(), _cached.value.getUid()))) {
+                return _cached.value;
+            }
+            __userTokenCache.remove(accessToken);
+        }
+        long _generation = __clock.get();
+        OAuthClientUser _user = __delegate.findUserByAccessToken(accessToken);
+        if (_user != null) {
+            __userTokenCache.put(accessToken, new Cached<OAuthClientUser>(_user, _generation), __expireAt(_user.getLastModifyTime(), _user.getExpiresIn()));
+        }
+        return _user;
+    }
+
+    public OAuthClientUser findUserByRefreshToken(String clientId, String refreshToken) throws Exception {
+        return __delegate.findUserByRefreshToken(clientId, refreshToken);
+    }
+
+    public int purgeExpiredAuthCodes(long createdBefore, int limit) throws Exception {
+        if (__delegate instanceof IOAuthPurgeableStorageAdapter) {
+            return ((IOAuthPurgeableStorageAdapter) __delegate).purgeExpiredAuthCodes(createdBefore, limit);
+        }
+        return 0;
+    }
+
+    public int purgeExpiredAccessTokens(long now, int limit) throws Exception {
+        if (__delegate instanceof IOAuthPurgeableStorageAdapter) {
+            return ((IOAuthPurgeableStorageAdapter) __delegate).purgeExpiredAccessTokens(now, limit);
+        }
+        return 0;
+    }
+
+    public int purgeExpiredRefreshTokens(long now, int limit) throws Exception {
+        if (__delegate instanceof IOAuthPurgeableStorageAdapter) {
+            return ((IOAuthPurgeableStorageAdapter) __delegate).purgeExpiredRefreshTokens(now, limit);
+        }
+        return 0;
+    }
+
+    /**
+     * 缓存项, 记录加载开始时的版本号
+     */
+    private static class Cached<T> {
+
+        final T value;
+
+        final long generation;
+
+        Cached(T value, long generation) {
+            this.value = value;
+            this.generation = generation;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.impl;
+
+import net.ymate.module.oauth.IOAuth;
+import net.ymate.module.oauth.IOAuthMetricsRegistry;
+import net.ymate.module.oauth.support.LatencyHistogram;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 默认度量指标注册表, 以进程内无锁直方图及原子计数器保存指标数据, 可通过快照方法导出
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/06/06 上午11:05
+ * @version 1.0
+ */
+public class DefaultMetricsRegistry implements IOAuthMetricsRegistry {
+
+    private final ConcurrentMap<String, Timer> __timers = new ConcurrentHashMap<String, Timer>();
+
+    private final ConcurrentMap<String, Counter> __counters = new ConcurrentHashMap<String, Counter>();
+
+    public void init(IOAuth owner) {
+    }
+
+    public void destroy() {
+        __timers.clear();
+        __counters.clear();
+    }
+
+    private static String __buildKey(String name, String... tags) {
+        if (tags == null || tags.length == 0) {
+            return name;
+        }
+        StringBuilder _key = new StringBuilder(name).append('{');
+        for (int _idx = 0; _idx + 1 < tags.length; _idx += 2) {
+            if (_idx > 0) {
+                _key.append(',');
+            }
+            _key.append(tags[_idx]).append('=').append(tags[_idx + 1]);
+        }
+        return _key.append('}').toString();
+    }
+
+    public ITimer timer(String name, String... tags) {
+        String _key = __buildKey(name, tags);
+        Timer _timer = __timers.get(_key);
+        if (_timer == null) {
+            Timer _newTimer = new Timer();
+            _timer = __timers.putIfAbsent(_key, _newTimer);
+            if (_timer == null) {
+                _timer = _newTimer;
+            }
+        }
+        return _timer;
+    }
+
+    public ICounter counter(String name, String... tags) {
+        String _key = __buildKey(name, tags);
+        Counter _counter = __counters.get(_key);
+        if (_counter == null) {
+            Counter _newCounter = new Counter();
+            _counter = __counters.putIfAbsent(_key, _newCounter);
+            if (_counter == null) {
+                _counter = _newCounter;
+            }
+        }
+        return _counter;
+    }
+
+    /**
+     * @param key 指标键, 格式: name{tag1=value1,tag2=value2}
+     * @return 返回计时器对应的直方图, 不存在则返回null
+     */
+    public LatencyHistogram getHistogram(String key) {
+        Timer _timer = __timers.get(key);
+        return _timer != null ? _timer.histogram : null;
+    }
+
+    /**
+     * @return 返回全部计时器快照, 值为{次数, 总耗时, 最大耗时, P50, P90, P99}, 耗时单位(纳秒)
+     */
+    public Map<String, long[]> snapshotTimers() {
+        Map<String, long[]> _snapshot = new HashMap<String, long[]>(__timers.size());
+        for (Map.Entry<String, Timer> _entry : __timers.entrySet()) {
+            LatencyHistogram _histogram = _entry.getValue().histogram;
+            _snapshot.put(_entry.getKey(), new long[]{
+                    _histogram.getCount(),
+                    _histogram.getTotal(),
+                    _histogram.getMax(),
+                    _histogram.getValueAtPercentile(50),
+                    _histogram.getValueAtPercentile(90),
+                    _histogram.getValueAtPercentile(99)});
+        }
+        return Collections.unmodifiableMap(_snapshot);
+    }
+
+    /**
+     * @return 返回全部计数器快照
+     */
+    public Map<String, Long> snapshotCounters() {
+        Map<String, Long> _snapshot = new HashMap<String, Long>(__counters.size());
+        for (Map.Entry<String, Counter> _entry : __counters.entrySet()) {
+            _snapshot.put(_entry.getKey(), _entry.getValue().count.get());
+        }
+        return Collections.unmodifiableMap(_snapshot);
+    }
+
+    private static class Timer implements ITimer {
+
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        public void record(long nanos) {
+            histogram.record(nanos);
+        }
+    }
+
+    private static class Counter implements ICounter {
+
+        final AtomicLong count = new AtomicLong();
+
+        public void increment() {
+            count.incrementAndGet();
+        }
+    }
+}
@@ -16,12 +16,22 @@
 package net.ymate.module.oauth.impl;
 
 import net.ymate.module.oauth.*;
+import net.ymate.module.oauth.support.AccessTokenExtractor;
+import net.ymate.module.oauth.support.RefreshPolicy;
 import net.ymate.platform.core.YMP;
 import net.ymate.platform.core.lang.BlurObject;
 import net.ymate.platform.core.util.ClassUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
+import org.apache.oltu.oauth2.common.message.types.ParameterStyle;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * @author 刘镇 (suninformation@163.com) on 2017/02/26 上午 02:08
@@ -33,8 +43,74 @@ public class DefaultModuleCfg implements IOAuthModuleCfg {
 
     private String __cacheNamePrefix;
 
+    private int __tokenCacheSize;
+
+    private int __tokenCacheTimeout;
+
+    private int __tokenMissCacheSize;
+
+    private int __tokenMissCacheTimeout;
+
+    private int __tokenWriteBatchSize;
+
+    private int __tokenWriteBatchLatency;
+
+    private int __asyncPoolSize;
+
+    private boolean __parallelLookup;
+
+    private boolean __clientRegistryEnabled;
+
+    private int __clientRegistryRefreshInterval;
+
+    private Set<String> __tokenResponseStreamingEndpoints;
+
+    private Set<ParameterStyle> __tokenParameterStyles;
+
+    private List<String> __customScopes;
+
+    private RefreshPolicy __refreshPolicy;
+
+    private int __refreshTokenGraceTime;
+
+    private int __tokenLockStripes;
+
+    private int __accessTokenGraceTime;
+
+    private boolean __tokenSweeperEnabled;
+
+    private int __tokenSweeperAuthCodeInterval;
+
+    private int __tokenSweeperInterval;
+
+    private int __tokenSweeperBatchSize;
+
+    private int __tokenSweeperMaxBatches;
+
+    private int __tokenSweeperRateLimit;
+
+    private boolean __metricsEnabled;
+
+    private IOAuthMetricsRegistry __metricsRegistry;
+
+    private boolean __storageInstrumentationEnabled;
+
+    private int __storageSlowCallThreshold;
+
+    private boolean __tracingEnabled;
+
+    private double __tracingSampleRatio;
+
+    private IOAuthSpanExporter __spanExporter;
+
     private String __authorizationView;
 
+    private String __tokenSignSecret;
+
+    private boolean __tokenRevocationCheck;
+
+    private int __tokenEntropyBytes;
+
     private IOAuthTokenGenerator __tokenGenerator;
 
     private IOAuthUserInfoAdapter __userInfoAdaptor;
@@ -51,16 +127,112 @@ public class DefaultModuleCfg implements IOAuthModuleCfg {
         //
         __cacheNamePrefix = StringUtils.trimToEmpty(_moduleCfgs.get("cache_name_prefix"));
         //
+        __tokenCacheSize = BlurObject.bind(_moduleCfgs.get("token_cache_size")).toIntValue();
+        //
+        __tokenCacheTimeout = BlurObject.bind(StringUtils.defaultIfBlank(_moduleCfgs.get("token_cache_timeout"), "300")).toIntValue();
+        //
+        __tokenMissCacheSize = BlurObject.bind(_moduleCfgs.get("token_miss_cache_size")).toIntValue();
+        //
+        __tokenMissCacheTimeout = BlurObject.bind(_moduleCfgs.get("token_miss_cache_timeout")).toIntValue();
+        if (__tokenMissCacheTimeout <= 0) {
+            __tokenMissCacheTimeout = 30;
+        }
+        //
+        __tokenWriteBatchSize = BlurObject.bind(_moduleCfgs.get("token_write_batch_size")).toIntValue();
+        //
+        __tokenWriteBatchLatency = BlurObject.bind(StringUtils.defaultIfBlank(_moduleCfgs.get("token_write_batch_latency"), "5")).toIntValue();
+        //
+        __asyncPoolSize = BlurObject.bind(_moduleCfgs.get("async_pool_size")).toIntValue();
+        if (__asyncPoolSize <= 0) {
+            __asyncPoolSize = Runtime.getRuntime().availableProcessors() * 2;
+        }
+        //
+        __parallelLookup = BlurObject.bind(_moduleCfgs.get("parallel_lookup")).toBooleanValue();
+        //
+        __clientRegistryEnabled = BlurObject.bind(_moduleCfgs.get("client_registry_enabled")).toBooleanValue();
+        __clientRegistryRefreshInterval = BlurObject.bind(StringUtils.defaultIfBlank(_moduleCfgs.get("client_registry_refresh_interval"), "300")).toIntValue();
+        //
+        String[] _streamingEndpoints = StringUtils.split(StringUtils.trimToNull(_moduleCfgs.get("token_response_streaming")), "|");
+        __tokenResponseStreamingEndpoints = _streamingEndpoints == null ? Collections.<String>emptySet() : new HashSet<String>(Arrays.asList(_streamingEndpoints));
+        //
+        __tokenParameterStyles = Collections.unmodifiableSet(AccessTokenExtractor.parseStyles(StringUtils.defaultIfBlank(_moduleCfgs.get("token_parameter_styles"), "header|query")));
+        //
+        String[] _customScopes = StringUtils.split(StringUtils.trimToNull(_moduleCfgs.get("custom_scopes")), "|");
+        __customScopes = _customScopes == null ? Collections.<String>emptyList() : Collections.unmodifiableList(Arrays.asList(_customScopes));
+        //
+        Map<String, String> _clientRefreshRules = new HashMap<String, String>();
+        for (Map.Entry<String, String> _entry : _moduleCfgs.entrySet()) {
+            if (StringUtils.startsWith(_entry.getKey(), "refresh_token_policy.") && StringUtils.isNotBlank(_entry.getValue())) {
+                _clientRefreshRules.put(StringUtils.substringAfter(_entry.getKey(), "refresh_token_policy."), _entry.getValue());
+            }
+        }
+        __refreshPolicy = new RefreshPolicy(_moduleCfgs.get("refresh_token_policy"), _clientRefreshRules);
+        __refreshTokenGraceTime = BlurObject.bind(StringUtils.defaultIfBlank(_moduleCfgs.get("refresh_token_grace_time"), "3000")).toIntValue();
+        __tokenLockStripes = BlurObject.bind(StringUtils.defaultIfBlank(_moduleCfgs.get("token_lock_stripes"), "1024")).toIntValue();
+        __accessTokenGraceTime = BlurObject.bind(_moduleCfgs.get("access_token_grace_time")).toIntValue();
+        //
+        __tokenSweeperEnabled = BlurObject.bind(_moduleCfgs.get("token_sweeper_enabled")).toBooleanValue();
+        __tokenSweeperAuthCodeInterval = BlurObject.bind(StringUtils.defaultIfBlank(_moduleCfgs.get("token_sweeper_auth_code_interval"), "60")).toIntValue();
+        __tokenSweeperInterval = BlurObject.bind(StringUtils.defaultIfBlank(_moduleCfgs.get("token_sweeper_interval"), "3600")).toIntValue();
+        __tokenSweeperBatchSize = BlurObject.bind(StringUtils.defaultIfBlank(_moduleCfgs.get("token_sweeper_batch_size"), "500")).toIntValue();
+        __tokenSweeperMaxBatches = BlurObject.bind(StringUtils.defaultIfBlank(_moduleCfgs.get("token_sweeper_max_batches"), "100")).toIntValue();
+        __tokenSweeperRateLimit = BlurObject.bind(StringUtils.defaultIfBlank(_moduleCfgs.get("token_sweeper_rate_limit"), "10")).toIntValue();
+        //
+        __metricsEnabled = BlurObject.bind(_moduleCfgs.get("metrics_enabled")).toBooleanValue();
+        if (__metricsEnabled) {
+            __metricsRegistry = ClassUtils.impl(_moduleCfgs.get("metrics_registry_class"), IOAuthMetricsRegistry.class, getClass());
+            if (__metricsRegistry == null) {
+                __metricsRegistry = new DefaultMetricsRegistry();
+            }
+        }
+        __storageInstrumentationEnabled = BlurObject.bind(_moduleCfgs.get("storage_instrumentation_enabled")).toBooleanValue();
+        __storageSlowCallThreshold = BlurObject.bind(StringUtils.defaultIfBlank(_moduleCfgs.get("storage_slow_call_threshold"), "200")).toIntValue();
+        //
+        __tracingEnabled = BlurObject.bind(_moduleCfgs.get("tracing_enabled")).toBooleanValue();
+        __tracingSampleRatio = NumberUtils.toDouble(StringUtils.trimToNull(_moduleCfgs.get("tracing_sample_ratio")), 1.0);
+        if (__tracingEnabled) {
+            __spanExporter = ClassUtils.impl(_moduleCfgs.get("tracing_exporter_class"), IOAuthSpanExporter.class, getClass());
+            if (__spanExporter == null) {
+                __spanExporter = new LogSpanExporter();
+            }
+        }
+        //
         __authorizationView = StringUtils.defaultIfBlank(_moduleCfgs.get("authorization_view"), "_views/oauth2/sns-authorization");
         //
+        __tokenSignSecret = StringUtils.trimToNull(_moduleCfgs.get("token_sign_secret"));
+        //
+        __tokenRevocationCheck = BlurObject.bind(StringUtils.defaultIfBlank(_moduleCfgs.get("token_revocation_check"), "true")).toBooleanValue();
+        //
+        __tokenEntropyBytes = BlurObject.bind(_moduleCfgs.get("token_entropy_bytes")).toIntValue();
+        if (__tokenEntropyBytes <= 0) {
+            __tokenEntropyBytes = SecureRandomTokenGenerator.DEFAULT_ENTROPY_BYTES;
+        }
+        //
         __tokenGenerator = ClassUtils.impl(_moduleCfgs.get("token_generator_class"), IOAuthTokenGenerator.class, getClass());
         if (__tokenGenerator == null) {
             __tokenGenerator = new DefaultTokenGenerator();
+        } else if (__tokenGenerator instanceof SecureRandomTokenGenerator) {
+            ((SecureRandomTokenGenerator) __tokenGenerator).setEntropyBytes(__tokenEntropyBytes);
         }
         //
         __userInfoAdaptor = ClassUtils.impl(_moduleCfgs.get("userinfo_adapter_class"), IOAuthUserInfoAdapter.class, getClass());
+        if (__userInfoAdaptor != null && (__metricsEnabled || __tracingEnabled)) {
+            __userInfoAdaptor = new InstrumentedUserInfoAdapter(__userInfoAdaptor);
+        }
         //
         __storageAdapter = ClassUtils.impl(_moduleCfgs.get("storage_adapter_class"), IOAuthStorageAdapter.class, getClass());
+        if (__storageAdapter == null) {
+            __storageAdapter = new InMemoryStorageAdapter();
+        }
+        if (__metricsEnabled || __storageInstrumentationEnabled || __tracingEnabled) {
+            // 度量装饰器位于缓存装饰器之内, 仅记录实际到达存储的调用
+            __storageAdapter = __storageInstrumentationEnabled
+                    ? new InstrumentedStorageAdapter(__storageAdapter, true, __storageSlowCallThreshold)
+                    : new InstrumentedStorageAdapter(__storageAdapter);
+        }
+        if (__tokenCacheSize > 0) {
+            __storageAdapter = new CachingStorageAdapter(__storageAdapter, __cacheNamePrefix, __tokenCacheSize, __tokenCacheTimeout);
+        }
     }
 
     public int getAccessTokenExpireIn() {
@@ -71,10 +243,142 @@ public class DefaultModuleCfg implements IOAuthModuleCfg {
         return __cacheNamePrefix;
     }
 
+    public int getTokenCacheSize() {
+        return __tokenCacheSize;
+    }
+
+    public int getTokenCacheTimeout() {
+        return __tokenCacheTimeout;
+    }
+
+    public int getTokenMissCacheSize() {
+        return __tokenMissCacheSize;
+    }
+
+    public int getTokenMissCacheTimeout() {
+        return __tokenMissCacheTimeout;
+    }
+
+    public int getTokenWriteBatchSize() {
+        return __tokenWriteBatchSize;
+    }
+
+    public int getTokenWriteBatchLatency() {
+        return __tokenWriteBatchLatency;
+    }
+
+    public int getAsyncPoolSize() {
+        return __asyncPoolSize;
+    }
+
+    public boolean isParallelLookup() {
+        return __parallelLookup;
+    }
+
+    public boolean isClientRegistryEnabled() {
+        return __clientRegistryEnabled;
+    }
+
+    public int getClientRegistryRefreshInterval() {
+        return __clientRegistryRefreshInterval;
+    }
+
+    public boolean isTokenResponseStreaming(String endpoint) {
+        return __tokenResponseStreamingEndpoints.contains(endpoint);
+    }
+
+    public Set<ParameterStyle> getTokenParameterStyles() {
+        return __tokenParameterStyles;
+    }
+
+    public List<String> getCustomScopes() {
+        return __customScopes;
+    }
+
+    public RefreshPolicy getRefreshPolicy() {
+        return __refreshPolicy;
+    }
+
+    public int getRefreshTokenGraceTime() {
+        return __refreshTokenGraceTime;
+    }
+
+    public int getTokenLockStripes() {
+        return __tokenLockStripes;
+    }
+
+    public int getAccessTokenGraceTime() {
+        return __accessTokenGraceTime;
+    }
+
+    public boolean isTokenSweeperEnabled() {
+        return __tokenSweeperEnabled;
+    }
+
+    public int getTokenSweeperAuthCodeInterval() {
+        return __tokenSweeperAuthCodeInterval;
+    }
+
+    public int getTokenSweeperInterval() {
+        return __tokenSweeperInterval;
+    }
+
+    public int getTokenSweeperBatchSize() {
+        return __tokenSweeperBatchSize;
+    }
+
+    public int getTokenSweeperMaxBatches() {
+        return __tokenSweeperMaxBatches;
+    }
+
+    public int getTokenSweeperRateLimit() {
+        return __tokenSweeperRateLimit;
+    }
+
+    public boolean isMetricsEnabled() {
+        return __metricsEnabled;
+    }
+
+    public IOAuthMetricsRegistry getMetricsRegistry() {
+        return __metricsRegistry;
+    }
+
+    public boolean isStorageInstrumentationEnabled() {
+        return __storageInstrumentationEnabled;
+    }
+
+    public int getStorageSlowCallThreshold() {
+        return __storageSlowCallThreshold;
+    }
+
+    public boolean isTracingEnabled() {
+        return __tracingEnabled;
+    }
+
+    public double getTracingSampleRatio() {
+        return __tracingSampleRatio;
+    }
+
+    public IOAuthSpanExporter getSpanExporter() {
+        return __spanExporter;
+    }
+
     public String getAuthorizationView() {
         return __authorizationView;
     }
 
+    public String getTokenSignSecret() {
+        return __tokenSignSecret;
+    }
+
+    public boolean isTokenRevocationCheck() {
+        return __tokenRevocationCheck;
+    }
+
+    public int getTokenEntropyBytes() {
+        return __tokenEntropyBytes;
+    }
+
     public IOAuthTokenGenerator getTokenGenerator() {
         return __tokenGenerator;
     }
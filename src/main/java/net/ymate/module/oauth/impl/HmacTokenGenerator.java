@@ -0,0 +1,150 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.impl;
+
+import net.ymate.module.oauth.IOAuth;
+import net.ymate.module.oauth.IOAuthSignedTokenGenerator;
+import net.ymate.module.oauth.OAuthTokenClaims;
+import net.ymate.module.oauth.support.Base64Url;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+/**
+ * 基于HMAC-SHA256签名的自包含访问凭证生成器, 凭证格式为: base64url(声明).base64url(签名),
+ * 授权码及刷新凭证仍采用默认生成方式
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/05/22 下午5:30
+ * @version 1.0
+ */
+public class HmacTokenGenerator extends DefaultTokenGenerator implements IOAuthSignedTokenGenerator {
+
+    private static final Log _LOG = LogFactory.getLog(HmacTokenGenerator.class);
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final String VERSION = "2";
+
+    private static final char SEPARATOR = '\n';
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final SecureRandom __random = new SecureRandom();
+
+    private SecretKeySpec __secretKey;
+
+    private final ThreadLocal<Mac> __macs = new ThreadLocal<Mac>() {
+        @Override
+        protected Mac initialValue() {
+            try {
+                Mac _mac = Mac.getInstance(ALGORITHM);
+                _mac.init(__secretKey);
+                return _mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+
+    public HmacTokenGenerator() {
+        super();
+    }
+
+    /**
+     * @param secret 签名密钥
+     */
+    public HmacTokenGenerator(String secret) {
+        super();
+        __secretKey = new SecretKeySpec(secret.getBytes(UTF_8), ALGORITHM);
+    }
+
+    public void init(IOAuth owner) throws Exception {
+        if (__secretKey == null) {
+            String _secret = owner.getModuleCfg().getTokenSignSecret();
+            if (StringUtils.isBlank(_secret)) {
+                byte[] _keyBytes = new byte[32];
+                __random.nextBytes(_keyBytes);
+                __secretKey = new SecretKeySpec(_keyBytes, ALGORITHM);
+                //
+                _LOG.warn("Parameter token_sign_secret is not set, a random key is used and issued access tokens will be invalid after restart.");
+            } else {
+                __secretKey = new SecretKeySpec(_secret.getBytes(UTF_8), ALGORITHM);
+            }
+        }
+    }
+
+    private static void __append(StringBuilder builder, String value) {
+        if (value != null) {
+            if (value.indexOf(SEPARATOR) >= 0) {
+                throw new IllegalArgumentException("Token claim must not contain line separator.");
+            }
+            builder.append(value);
+        }
+        builder.append(SEPARATOR);
+    }
+
+    private byte[] __sign(byte[] payload, int length) {
+        Mac _mac = __macs.get();
+        _mac.update(payload, 0, length);
+        return _mac.doFinal();
+    }
+
+    public String accessToken(String clientId, String openId, String scope, int expiresIn) throws Exception {
+        byte[] _nonce = new byte[9];
+        __random.nextBytes(_nonce);
+        //
+        StringBuilder _builder = new StringBuilder(128).append(VERSION).append(SEPARATOR);
+        __append(_builder, clientId);
+        __append(_builder, openId);
+        __append(_builder, scope);
+        _builder.append(System.currentTimeMillis() + expiresIn * 1000L).append(SEPARATOR);
+        _builder.append(Base64Url.encode(_nonce));
+        //
+        byte[] _payload = _builder.toString().getBytes(UTF_8);
+        return Base64Url.encode(_payload) + '.' + Base64Url.encode(__sign(_payload, _payload.length));
+    }
+
+    public OAuthTokenClaims parseAccessToken(String accessToken) {
+        if (accessToken == null || __secretKey == null) {
+            return null;
+        }
+        int _dot = accessToken.indexOf('.');
+        if (_dot <= 0) {
+            return null;
+        }
+        byte[] _payload = Base64Url.decode(accessToken, 0, _dot);
+        byte[] _signature = Base64Url.decode(accessToken, _dot + 1, accessToken.length());
+        if (_payload == null || _signature == null || !MessageDigest.isEqual(_signature, __sign(_payload, _payload.length))) {
+            return null;
+        }
+        String[] _claims = StringUtils.splitPreserveAllTokens(new String(_payload, UTF_8), SEPARATOR);
+        if (_claims.length != 6 || !VERSION.equals(_claims[0])) {
+            return null;
+        }
+        try {
+            return new OAuthTokenClaims(_claims[1], StringUtils.trimToNull(_claims[2]), StringUtils.trimToNull(_claims[3]), Long.parseLong(_claims[4]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
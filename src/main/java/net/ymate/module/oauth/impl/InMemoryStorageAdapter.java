@@ -0,0 +1,576 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.impl;
+
+import net.ymate.module.oauth.*;
+import net.ymate.module.oauth.support.DaemonThreadFactory;
+import net.ymate.module.oauth.support.ExpiredTokenSweeper;
+import net.ymate.module.oauth.support.RefreshPolicy;
+import net.ymate.module.oauth.support.StripedLocks;
+import net.ymate.module.oauth.support.TimingWheel;
+import net.ymate.platform.core.lang.BlurObject;
+import net.ymate.platform.core.util.DateTimeUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 基于内存的令牌存储适配器, 分别按clientId、访问凭证、上一个访问凭证、(clientId, uid)及刷新凭证建立并发索引,
+ * 令牌查询均为O(1)操作, 授权码及各类凭证的到期时间登记在时间轮过期索引中, 过期数据由后台线程定期清理且无需全量扫描;
+ * 适用于单节点部署、开发测试及性能基准对比
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/05/18 下午3:20
+ * @version 1.0
+ */
+public class InMemoryStorageAdapter implements IOAuthBatchStorageAdapter, IOAuthPurgeableStorageAdapter, IOAuthRefreshExpireStorageAdapter, IOAuthClientStorageAdapter, IOAuthOpenIdStorageAdapter, IOAuthAuthCodeConsumableStorageAdapter {
+
+    private static final Log _LOG = LogFactory.getLog(InMemoryStorageAdapter.class);
+
+    /**
+     * 授权码有效期(5分钟)
+     */
+    public static final long AUTH_CODE_EXPIRE_IN = ExpiredTokenSweeper.AUTH_CODE_EXPIRE_IN;
+
+    /**
+     * 默认过期数据清理间隔, 单位(秒)
+     */
+    public static final int DEFAULT_CLEANUP_INTERVAL = 60;
+
+    /**
+     * 用户令牌写入分段锁数量
+     */
+    private static final int USER_LOCK_STRIPES = 256;
+
+    private final ConcurrentMap<String, OAuthClient> __clients = new ConcurrentHashMap<String, OAuthClient>();
+
+    private final ConcurrentMap<String, OAuthClient> __clientsByAccessToken = new ConcurrentHashMap<String, OAuthClient>();
+
+    private final ConcurrentMap<String, OAuthClient> __clientsByLastAccessToken = new ConcurrentHashMap<String, OAuthClient>();
+
+    private static final RefreshPolicy __DEFAULT_REFRESH_POLICY = new RefreshPolicy(RefreshPolicy.DEFAULT_RULE, null);
+
+    private final StripedLocks __userLocks = new StripedLocks(USER_LOCK_STRIPES);
+
+    private final ConcurrentMap<String, OAuthClientUser> __users = new ConcurrentHashMap<String, OAuthClientUser>();
+
+    /**
+     * 已预先分配但尚未创建令牌记录的用户唯一标识
+     */
+    private final ConcurrentMap<String, String> __reservedOpenIds = new ConcurrentHashMap<String, String>();
+
+    private final ConcurrentMap<String, OAuthClientUser> __usersByAccessToken = new ConcurrentHashMap<String, OAuthClientUser>();
+
+    private final ConcurrentMap<String, OAuthClientUser> __usersByLastAccessToken = new ConcurrentHashMap<String, OAuthClientUser>();
+
+    private final ConcurrentMap<String, OAuthClientUser> __usersByRefreshToken = new ConcurrentHashMap<String, OAuthClientUser>();
+
+    private final ConcurrentMap<String, CodeEntry> __authCodes = new ConcurrentHashMap<String, CodeEntry>();
+
+    private final TimingWheel<String> __authCodeExpiries = new TimingWheel<String>(DateTimeUtils.SECOND);
+
+    private final TimingWheel<String> __clientTokenExpiries = new TimingWheel<String>(DateTimeUtils.SECOND);
+
+    private final TimingWheel<String> __userTokenExpiries = new TimingWheel<String>(DateTimeUtils.SECOND);
+
+    private final TimingWheel<String> __refreshTokenExpiries = new TimingWheel<String>(DateTimeUtils.MINUTE);
+
+    private ScheduledExecutorService __cleanupExecutor;
+
+    private IOAuth __owner;
+
+    private static String __userKey(String clientId, String uid) {
+        return clientId + "|" + uid;
+    }
+
+    public void init(IOAuth owner) {
+        __owner = owner;
+        //
+        int _interval = DEFAULT_CLEANUP_INTERVAL;
+        if (owner.getOwner() != null) {
+            Map<String, String> _moduleCfgs = owner.getOwner().getConfig().getModuleConfigs(IOAuth.MODULE_NAME);
+            int _cfgInterval = BlurObject.bind(_moduleCfgs.get("memory_storage_cleanup_interval")).toIntValue();
+            if (_cfgInterval > 0) {
+                _interval = _cfgInterval;
+            }
+        }
+        __cleanupExecutor = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("oauth-memory-storage-cleanup"));
+        __cleanupExecutor.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                try {
+                    cleanup();
+                } catch (Throwable e) {
+                    _LOG.warn("", e);
+                }
+            }
+        }, _interval, _interval, TimeUnit.SECONDS);
+    }
+
+    public void destroy() {
+        if (__cleanupExecutor != null) {
+            __cleanupExecutor.shutdownNow();
+            __cleanupExecutor = null;
+        }
+        __clients.clear();
+        __clientsByAccessToken.clear();
+        __clientsByLastAccessToken.clear();
+        __users.clear();
+        __reservedOpenIds.clear();
+        __usersByAccessToken.clear();
+        __usersByLastAccessToken.clear();
+        __usersByRefreshToken.clear();
+        __authCodes.clear();
+        __authCodeExpiries.clear();
+        __clientTokenExpiries.clear();
+        __userTokenExpiries.clear();
+        __refreshTokenExpiries.clear();
+        __owner = null;
+    }
+
+    private void __notifyClientChanged(String clientId) {
+        if (__owner != null) {
+            try {
+                __owner.invalidateClient(clientId);
+            } catch (Exception e) {
+                _LOG.warn("", e);
+            }
+        }
+    }
+
+    /**
+     * 注册或更新应用信息
+     *
+     * @param client 应用基本信息(其id属性为clientId)
+     */
+    public void registerClient(OAuthClient client) {
+        if (client == null || StringUtils.isBlank(client.getId())) {
+            throw new IllegalArgumentException("client");
+        }
+        synchronized (__clients) {
+            OAuthClient _origin = __clients.put(client.getId(), client);
+            if (_origin != null) {
+                __unindexClient(_origin);
+            }
+            if (client.getAccessToken() != null) {
+                __clientsByAccessToken.put(client.getAccessToken(), client);
+                __clientTokenExpiries.schedule(client.getAccessToken(), __expireAt(client.getLastModifyTime(), client.getExpiresIn()));
+            }
+            if (client.getLastAccessToken() != null) {
+                __clientsByLastAccessToken.put(client.getLastAccessToken(), client);
+            }
+        }
+        __notifyClientChanged(client.getId());
+    }
+
+    /**
+     * 移除应用信息及其授权令牌
+     *
+     * @param clientId 应用唯一标识
+     */
+    public void removeClient(String clientId) {
+        synchronized (__clients) {
+            OAuthClient _origin = __clients.remove(clientId);
+            if (_origin != null) {
+                __unindexClient(_origin);
+            }
+        }
+        __notifyClientChanged(clientId);
+    }
+
+    private void __unindexClient(OAuthClient origin) {
+        if (origin.getAccessToken() != null) {
+            __clientsByAccessToken.remove(origin.getAccessToken(), origin);
+            __clientTokenExpiries.cancel(origin.getAccessToken());
+        }
+        if (origin.getLastAccessToken() != null) {
+            __clientsByLastAccessToken.remove(origin.getLastAccessToken(), origin);
+        }
+    }
+
+    public OAuthClient findClientById(String clientId) throws Exception {
+        return __clients.get(clientId);
+    }
+
+    public List<OAuthClient> listClients() throws Exception {
+        return new ArrayList<OAuthClient>(__clients.values());
+    }
+
+    public OAuthClient findClientByAccessToken(String accessToken) throws Exception {
+        OAuthClient _client = __clientsByAccessToken.get(accessToken);
+        return _client != null ? _client : __clientsByLastAccessToken.get(accessToken);
+    }
+
+    public OAuthToken saveOrUpdateClientAccessToken(String clientId, String accessToken, int expiresIn) throws Exception {
+        synchronized (__clients) {
+            OAuthClient _origin = __clients.get(clientId);
+            if (_origin == null) {
+                return null;
+            }
+            long _now = System.currentTimeMillis();
+            OAuthClient _client = __copyClient(_origin);
+            _client.setLastAccessToken(_origin.getAccessToken());
+            _client.setAccessToken(accessToken);
+            _client.setExpiresIn(expiresIn);
+            _client.setLastModifyTime(_now);
+            //
+            __clients.put(clientId, _client);
+            __unindexClient(_origin);
+            __clientsByAccessToken.put(accessToken, _client);
+            if (_client.getLastAccessToken() != null) {
+                __clientsByLastAccessToken.put(_client.getLastAccessToken(), _client);
+            }
+            __clientTokenExpiries.schedule(accessToken, __expireAt(_now, expiresIn));
+            //
+            return new OAuthToken(clientId, accessToken, _client.getLastAccessToken(), expiresIn, __longValue(_client.getCreateTime(), _now), _now);
+        }
+    }
+
+    public OAuthCode saveOrUpdateAuthCode(String code, String redirectUri, String clientId, String uid, String scope) throws Exception {
+        OAuthCode _code = new OAuthCode(code, redirectUri, clientId, uid, scope);
+        long _now = System.currentTimeMillis();
+        __authCodes.put(code, new CodeEntry(_code, _now));
+        __authCodeExpiries.schedule(code, _now + AUTH_CODE_EXPIRE_IN);
+        return _code;
+    }
+
+    public OAuthCode findAuthCode(String clientId, String authzCode) throws Exception {
+        CodeEntry _entry = __authCodes.get(authzCode);
+        if (_entry != null) {
+            if (_entry.isExpired(System.currentTimeMillis())) {
+                if (__authCodes.remove(authzCode, _entry)) {
+                    __authCodeExpiries.cancel(authzCode);
+                }
+            } else if (StringUtils.equals(clientId, _entry.code.getClientId())) {
+                return _entry.code;
+            }
+        }
+        return null;
+    }
+
+    public boolean consumeAuthCode(String clientId, String authzCode) throws Exception {
+        CodeEntry _entry = __authCodes.get(authzCode);
+        if (_entry != null && StringUtils.equals(clientId, _entry.code.getClientId()) && __authCodes.remove(authzCode, _entry)) {
+            __authCodeExpiries.cancel(authzCode);
+            return !_entry.isExpired(System.currentTimeMillis());
+        }
+        return false;
+    }
+
+    public List<OAuthCode> saveOrUpdateAuthCodes(List<OAuthCode> authCodes) throws Exception {
+        List<OAuthCode> _results = new ArrayList<OAuthCode>(authCodes.size());
+        for (OAuthCode _code : authCodes) {
+            _results.add(saveOrUpdateAuthCode(_code.getCode(), _code.getRedirectUri(), _code.getClientId(), _code.getUid(), _code.getScope()));
+        }
+        return _results;
+    }
+
+    public List<OAuthSnsToken> saveOrUpdateAccessTokens(List<OAuthTokenParams> tokens) throws Exception {
+        List<OAuthSnsToken> _results = new ArrayList<OAuthSnsToken>(tokens.size());
+        for (OAuthTokenParams _token : tokens) {
+            _results.add(saveOrUpdateAccessToken(_token.getClientId(), _token.getUid(), _token.getScope(), _token.getAccessToken(), _token.getRefreshToken(), _token.getExpiresIn(), _token.getRefreshExpireTime(), _token.isRefresh()));
+        }
+        return _results;
+    }
+
+    public String allocateOpenId(String clientId, String uid) {
+        String _key = __userKey(clientId, uid);
+        // 与令牌写入使用同一把锁, 避免分配与记录创建交错导致标识不一致
+        Lock _lock = __userLocks.get(clientId, uid);
+        _lock.lock();
+        try {
+            OAuthClientUser _user = __users.get(_key);
+            if (_user != null) {
+                return _user.getId();
+            }
+            String _openId = __reservedOpenIds.get(_key);
+            if (_openId == null) {
+                _openId = UUID.randomUUID().toString().replace("-", "");
+                __reservedOpenIds.put(_key, _openId);
+            }
+            return _openId;
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    /**
+     * 未指定刷新凭证到期时间, 写入时按模块刷新策略计算(模块未初始化时使用默认规则)
+     */
+    public OAuthSnsToken saveOrUpdateAccessToken(String clientId, String uid, String scope, String accessToken, String refreshToken, int expiresIn, boolean refresh) {
+        return saveOrUpdateAccessToken(clientId, uid, scope, accessToken, refreshToken, expiresIn, 0, refresh);
+    }
+
+    /**
+     * 同一用户的读改写按(clientId, uid)分段加锁, 不同用户的令牌记录及索引互不重叠, 仅在散列冲突时竞争; 模块已持有同一用户的锁时几乎无额外开销
+     */
+    public OAuthSnsToken saveOrUpdateAccessToken(String clientId, String uid, String scope, String accessToken, String refreshToken, int expiresIn, long refreshExpireTime, boolean refresh) {
+        Lock _lock = __userLocks.get(clientId, uid);
+        _lock.lock();
+        try {
+            return __doSaveOrUpdateAccessToken(clientId, uid, scope, accessToken, refreshToken, expiresIn, refreshExpireTime, refresh);
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    private OAuthSnsToken __doSaveOrUpdateAccessToken(String clientId, String uid, String scope, String accessToken, String refreshToken, int expiresIn, long refreshExpireTime, boolean refresh) {
+        String _key = __userKey(clientId, uid);
+        long _now = System.currentTimeMillis();
+        OAuthClientUser _origin = __users.get(_key);
+        if (refreshExpireTime <= 0) {
+            IOAuth _owner = __owner;
+            RefreshPolicy _policy = _owner != null && _owner.getModuleCfg() != null ? _owner.getModuleCfg().getRefreshPolicy() : __DEFAULT_REFRESH_POLICY;
+            refreshExpireTime = _policy.expireTime(clientId, _origin, refresh, _now);
+        }
+        OAuthClientUser _user;
+        if (_origin == null) {
+            _user = new OAuthClientUser();
+            String _openId = __reservedOpenIds.remove(_key);
+            _user.setId(_openId != null ? _openId : UUID.randomUUID().toString().replace("-", ""));
+            _user.setClientId(clientId);
+            _user.setUid(uid);
+            _user.setCreateTime(_now);
+            _user.setRefreshCount(0);
+        } else {
+            _user = __copyUser(_origin);
+        }
+        _user.setIsAuthorized(1);
+        // 仅签发新的访问凭证时轮换上一个访问凭证并记录轮换时间, 宽限期自轮换时间起算
+        boolean _rotated = accessToken != null;
+        if (_rotated) {
+            _user.setLastAccessToken(_user.getAccessToken());
+            _user.setAccessToken(accessToken);
+            _user.setExpiresIn(expiresIn);
+            _user.setRotateTime(_now);
+        }
+        if (scope != null) {
+            _user.setScope(scope);
+        }
+        _user.setRefreshToken(refreshToken);
+        _user.setRefreshExpireTime(refreshExpireTime);
+        _user.setRefreshCount(refresh ? __intValue(_user.getRefreshCount()) + 1 : 0);
+        _user.setLastModifyTime(_now);
+        //
+        // 先建立新索引项再移除旧索引项, 避免并发查询在两者之间查不到而被记为未命中
+        __users.put(_key, _user);
+        if (_user.getAccessToken() != null) {
+            __usersByAccessToken.put(_user.getAccessToken(), _user);
+            __userTokenExpiries.schedule(_user.getAccessToken(), __expireAt(_now, _user.getExpiresIn()));
+        }
+        if (_rotated && _user.getLastAccessToken() != null) {
+            __usersByLastAccessToken.put(_user.getLastAccessToken(), _user);
+        } else if (!_rotated && _origin != null && _origin.getLastAccessToken() != null) {
+            // 未轮换时仅更新仍存在的索引项(可能已被过期清理移除), 不重新建立
+            __usersByLastAccessToken.replace(_origin.getLastAccessToken(), _origin, _user);
+        }
+        if (_user.getRefreshToken() != null) {
+            __usersByRefreshToken.put(_user.getRefreshToken(), _user);
+            __refreshTokenExpiries.schedule(_user.getRefreshToken(), refreshExpireTime);
+        }
+        if (_origin != null) {
+            // 仅移除键已变化的旧索引项, 且仅当其仍指向原记录时移除; 键未变化时已由上面的写入替换
+            if (_origin.getAccessToken() != null && !StringUtils.equals(_origin.getAccessToken(), _user.getAccessToken())) {
+                __usersByAccessToken.remove(_origin.getAccessToken(), _origin);
+                __userTokenExpiries.cancel(_origin.getAccessToken());
+            }
+            if (_rotated && _origin.getLastAccessToken() != null && !StringUtils.equals(_origin.getLastAccessToken(), _user.getLastAccessToken())) {
+                __usersByLastAccessToken.remove(_origin.getLastAccessToken(), _origin);
+            }
+            if (_origin.getRefreshToken() != null && !StringUtils.equals(_origin.getRefreshToken(), _user.getRefreshToken())) {
+                __usersByRefreshToken.remove(_origin.getRefreshToken(), _origin);
+                __refreshTokenExpiries.cancel(_origin.getRefreshToken());
+            }
+        }
+        //
+        return new OAuthSnsToken(clientId, _user.getId(), uid, true, _user.getScope(),
+                _user.getAccessToken(), _user.getLastAccessToken(), _user.getRefreshToken(), _user.getRefreshCount(),
+                __intValue(_user.getExpiresIn()), __longValue(_user.getCreateTime(), _now), _now);
+    }
+
+    public OAuthClientUser findUser(String clientId, String uid) throws Exception {
+        OAuthClientUser _user = __users.get(__userKey(clientId, uid));
+        if (_user == null && __clients.containsKey(clientId)) {
+            // 用户尚未授权时返回未授权状态的关系对象, 以便判断应用是否有效
+            _user = new OAuthClientUser();
+            _user.setClientId(clientId);
+            _user.setUid(uid);
+            _user.setIsAuthorized(0);
+            _user.setRefreshCount(0);
+        }
+        return _user;
+    }
+
+    public OAuthClientUser findUserByAccessToken(String accessToken) throws Exception {
+        OAuthClientUser _user = __usersByAccessToken.get(accessToken);
+        return _user != null ? _user : __usersByLastAccessToken.get(accessToken);
+    }
+
+    public OAuthClientUser findUserByRefreshToken(String clientId, String refreshToken) throws Exception {
+        OAuthClientUser _user = __usersByRefreshToken.get(refreshToken);
+        if (_user != null && StringUtils.equals(clientId, _user.getClientId())) {
+            return _user;
+        }
+        return null;
+    }
+
+    /**
+     * 清理已过期的授权码、访问凭证索引及刷新凭证索引
+     */
+    public void cleanup() {
+        long _now = System.currentTimeMillis();
+        purgeExpiredAuthCodes(_now - AUTH_CODE_EXPIRE_IN, Integer.MAX_VALUE);
+        purgeExpiredAccessTokens(_now, Integer.MAX_VALUE);
+        purgeExpiredRefreshTokens(_now, Integer.MAX_VALUE);
+    }
+
+    public int purgeExpiredAuthCodes(long createdBefore, int limit) {
+        int _count = 0;
+        for (String _code : __authCodeExpiries.poll(createdBefore + AUTH_CODE_EXPIRE_IN, limit)) {
+            CodeEntry _entry = __authCodes.get(_code);
+            if (_entry != null) {
+                if (_entry.createTime >= createdBefore) {
+                    __authCodeExpiries.schedule(_code, _entry.createTime + AUTH_CODE_EXPIRE_IN);
+                } else if (__authCodes.remove(_code, _entry)) {
+                    _count++;
+                }
+            }
+        }
+        return _count;
+    }
+
+    public int purgeExpiredAccessTokens(long now, int limit) {
+        int _count = 0;
+        for (String _accessToken : __clientTokenExpiries.poll(now, limit)) {
+            OAuthClient _client = __clientsByAccessToken.get(_accessToken);
+            if (_client != null) {
+                if (!__isExpired(_client.getLastModifyTime(), _client.getExpiresIn(), now)) {
+                    __clientTokenExpiries.schedule(_accessToken, __expireAt(_client.getLastModifyTime(), _client.getExpiresIn()));
+                } else if (__clientsByAccessToken.remove(_accessToken, _client)) {
+                    if (_client.getLastAccessToken() != null) {
+                        __clientsByLastAccessToken.remove(_client.getLastAccessToken(), _client);
+                    }
+                    _count++;
+                }
+            }
+        }
+        for (String _accessToken : __userTokenExpiries.poll(now, limit - _count)) {
+            OAuthClientUser _user = __usersByAccessToken.get(_accessToken);
+            if (_user != null) {
+                if (!__isExpired(_user.getLastModifyTime(), _user.getExpiresIn(), now)) {
+                    __userTokenExpiries.schedule(_accessToken, __expireAt(_user.getLastModifyTime(), _user.getExpiresIn()));
+                } else if (__usersByAccessToken.remove(_accessToken, _user)) {
+                    if (_user.getLastAccessToken() != null) {
+                        __usersByLastAccessToken.remove(_user.getLastAccessToken(), _user);
+                    }
+                    _count++;
+                }
+            }
+        }
+        return _count;
+    }
+
+    public int purgeExpiredRefreshTokens(long now, int limit) {
+        int _count = 0;
+        for (String _refreshToken : __refreshTokenExpiries.poll(now, limit)) {
+            OAuthClientUser _user = __usersByRefreshToken.get(_refreshToken);
+            if (_user != null) {
+                long _refreshExpireTime = __longValue(_user.getRefreshExpireTime(), 0);
+                if (_refreshExpireTime > now) {
+                    __refreshTokenExpiries.schedule(_refreshToken, _refreshExpireTime);
+                } else if (__usersByRefreshToken.remove(_refreshToken, _user)) {
+                    _count++;
+                }
+            }
+        }
+        return _count;
+    }
+
+    private static long __expireAt(Long lastModifyTime, Integer expiresIn) {
+        return __longValue(lastModifyTime, 0) + __intValue(expiresIn) * 1000L;
+    }
+
+    private static boolean __isExpired(Long lastModifyTime, Integer expiresIn, long now) {
+        return now - __longValue(lastModifyTime, 0) >= __intValue(expiresIn) * 1000L;
+    }
+
+    private static int __intValue(Integer value) {
+        return value == null ? 0 : value;
+    }
+
+    private static long __longValue(Long value, long defaultValue) {
+        return value == null ? defaultValue : value;
+    }
+
+    private static OAuthClient __copyClient(OAuthClient origin) {
+        OAuthClient _target = new OAuthClient();
+        _target.setId(origin.getId());
+        _target.setTitle(origin.getTitle());
+        _target.setIconUrl(origin.getIconUrl());
+        _target.setDomain(origin.getDomain());
+        _target.setSecretKey(origin.getSecretKey());
+        _target.setAccessToken(origin.getAccessToken());
+        _target.setLastAccessToken(origin.getLastAccessToken());
+        _target.setExpiresIn(origin.getExpiresIn());
+        _target.setCreateTime(origin.getCreateTime());
+        _target.setLastModifyTime(origin.getLastModifyTime());
+        return _target;
+    }
+
+    private static OAuthClientUser __copyUser(OAuthClientUser origin) {
+        OAuthClientUser _target = new OAuthClientUser();
+        _target.setId(origin.getId());
+        _target.setUid(origin.getUid());
+        _target.setClientId(origin.getClientId());
+        _target.setIsAuthorized(origin.getIsAuthorized());
+        _target.setAccessToken(origin.getAccessToken());
+        _target.setLastAccessToken(origin.getLastAccessToken());
+        _target.setRefreshToken(origin.getRefreshToken());
+        _target.setRefreshCount(origin.getRefreshCount());
+        _target.setExpiresIn(origin.getExpiresIn());
+        _target.setScope(origin.getScope());
+        _target.setRefreshExpireTime(origin.getRefreshExpireTime());
+        _target.setRotateTime(origin.getRotateTime());
+        _target.setCreateTime(origin.getCreateTime());
+        _target.setLastModifyTime(origin.getLastModifyTime());
+        return _target;
+    }
+
+    private static class CodeEntry {
+
+        final OAuthCode code;
+
+        final long createTime;
+
+        CodeEntry(OAuthCode code, long createTime) {
+            this.code = code;
+            this.createTime = createTime;
+        }
+
+        boolean isExpired(long now) {
+            return now - createTime >= AUTH_CODE_EXPIRE_IN;
+        }
+    }
+}
@@ -0,0 +1,436 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.impl;
+
+import net.ymate.module.oauth.*;
+import net.ymate.module.oauth.support.LatencyHistogram;
+import net.ymate.module.oauth.support.OAuthMetrics;
+import net.ymate.module.oauth.support.StorageBatchHelper;
+import net.ymate.module.oauth.support.StorageCallStats;
+import net.ymate.module.oauth.support.TraceSpan;
+import net.ymate.module.oauth.support.Tracer;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 令牌存储适配器度量装饰器, 记录被装饰适配器每个方法的调用耗时(含异常返回): 启用度量指标时计入注册表计时器,
+ * 启用存储调用统计时计入本装饰器按方法持有的无锁直方图, 并将超过阈值的慢调用连同触发该调用的端点记录到日志,
+ * 启用请求追踪时为每次调用创建名称为storage.方法名称的追踪片段;
+ * 计时器在初始化时按方法一次性获取, 调用时仅产生两次System.nanoTime()及数次原子累加;
+ * 批量写入及过期数据清理在被装饰适配器不支持时分别退化为逐条写入及不做任何处理
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/06/06 下午2:10
+ * @version 1.0
+ */
+public class InstrumentedStorageAdapter implements IOAuthBatchStorageAdapter, IOAuthPurgeableStorageAdapter, IOAuthRefreshExpireStorageAdapter, IOAuthClientStorageAdapter, IOAuthOpenIdStorageAdapter, IOAuthAuthCodeConsumableStorageAdapter {
+
+    private static final Log _LOG = LogFactory.getLog(InstrumentedStorageAdapter.class);
+
+    /**
+     * 适配器度量标签值
+     */
+    public static final String ADAPTER_NAME = "storage";
+
+    private static final int FIND_CLIENT_BY_ID = 0;
+
+    private static final int LIST_CLIENTS = 1;
+
+    private static final int FIND_CLIENT_BY_ACCESS_TOKEN = 2;
+
+    private static final int SAVE_OR_UPDATE_CLIENT_ACCESS_TOKEN = 3;
+
+    private static final int SAVE_OR_UPDATE_AUTH_CODE = 4;
+
+    private static final int FIND_AUTH_CODE = 5;
+
+    private static final int SAVE_OR_UPDATE_ACCESS_TOKEN = 6;
+
+    private static final int SAVE_OR_UPDATE_AUTH_CODES = 7;
+
+    private static final int SAVE_OR_UPDATE_ACCESS_TOKENS = 8;
+
+    private static final int FIND_USER = 9;
+
+    private static final int FIND_USER_BY_ACCESS_TOKEN = 10;
+
+    private static final int FIND_USER_BY_REFRESH_TOKEN = 11;
+
+    private static final int PURGE_EXPIRED_AUTH_CODES = 12;
+
+    private static final int PURGE_EXPIRED_ACCESS_TOKENS = 13;
+
+    private static final int PURGE_EXPIRED_REFRESH_TOKENS = 14;
+
+    private static final int CONSUME_AUTH_CODE = 15;
+
+    private static final String[] METHOD_NAMES = {
+            "findClientById",
+            "listClients",
+            "findClientByAccessToken",
+            "saveOrUpdateClientAccessToken",
+            "saveOrUpdateAuthCode",
+            "findAuthCode",
+            "saveOrUpdateAccessToken",
+            "saveOrUpdateAuthCodes",
+            "saveOrUpdateAccessTokens",
+            "findUser",
+            "findUserByAccessToken",
+            "findUserByRefreshToken",
+            "purgeExpiredAuthCodes",
+            "purgeExpiredAccessTokens",
+            "purgeExpiredRefreshTokens",
+            "consumeAuthCode"
+    };
+
+    private final IOAuthStorageAdapter __delegate;
+
+    private final IOAuthMetricsRegistry.ITimer[] __timers = new IOAuthMetricsRegistry.ITimer[METHOD_NAMES.length];
+
+    private final LatencyHistogram[] __histograms;
+
+    private final long __slowCallThreshold;
+
+    private Tracer __tracer;
+
+    private final String[] __spanNames = new String[METHOD_NAMES.length];
+
+    /**
+     * 仅向度量指标注册表记录调用耗时
+     *
+     * @param delegate 被装饰的令牌存储适配器
+     */
+    public InstrumentedStorageAdapter(IOAuthStorageAdapter delegate) {
+        this(delegate, false, 0);
+    }
+
+    /**
+     * @param delegate          被装饰的令牌存储适配器
+     * @param histogramEnabled  是否按方法记录调用耗时直方图
+     * @param slowCallThreshold 慢调用日志阈值, 单位(毫秒), 小于等于0表示不记录
+     */
+    public InstrumentedStorageAdapter(IOAuthStorageAdapter delegate, boolean histogramEnabled, int slowCallThreshold) {
+        if (delegate == null) {
+            throw new NullPointerException("delegate");
+        }
+        __delegate = delegate;
+        if (histogramEnabled) {
+            __histograms = new LatencyHistogram[METHOD_NAMES.length];
+            for (int _idx = 0; _idx < METHOD_NAMES.length; _idx++) {
+                __histograms[_idx] = new LatencyHistogram();
+            }
+        } else {
+            __histograms = null;
+        }
+        __slowCallThreshold = slowCallThreshold > 0 ? TimeUnit.MILLISECONDS.toNanos(slowCallThreshold) : 0;
+    }
+
+    /**
+     * @return 返回被装饰的令牌存储适配器
+     */
+    public IOAuthStorageAdapter getDelegate() {
+        return __delegate;
+    }
+
+    public void init(IOAuth owner) {
+        OAuthMetrics _metrics = owner.getMetrics();
+        for (int _idx = 0; _idx < METHOD_NAMES.length; _idx++) {
+            __timers[_idx] = _metrics.adapterTimer(ADAPTER_NAME, METHOD_NAMES[_idx]);
+            __spanNames[_idx] = ADAPTER_NAME + "." + METHOD_NAMES[_idx];
+        }
+        __tracer = owner.getTracer();
+        __delegate.init(owner);
+    }
+
+    public void destroy() {
+        __delegate.destroy();
+    }
+
+    private TraceSpan __startSpan(int method) {
+        return __tracer != null ? __tracer.startSpan(__spanNames[method]) : TraceSpan.NOOP;
+    }
+
+    private void __record(int method, long start, TraceSpan span) {
+        span.end();
+        long _elapsed = System.nanoTime() - start;
+        IOAuthMetricsRegistry.ITimer _timer = __timers[method];
+        if (_timer != null) {
+            _timer.record(_elapsed);
+        }
+        if (__histograms != null) {
+            __histograms[method].record(_elapsed);
+        }
+        if (__slowCallThreshold > 0 && _elapsed >= __slowCallThreshold) {
+            _LOG.warn("Slow storage call [" + METHOD_NAMES[method] + "] took " + TimeUnit.NANOSECONDS.toMillis(_elapsed) + "ms, endpoint: " + StringUtils.defaultIfBlank(StorageCallStats.currentEndpoint(), OAuthMetrics.NONE));
+        }
+    }
+
+    /**
+     * @param method 方法名称, 如: findUserByAccessToken
+     * @return 返回指定方法的调用耗时直方图(单位: 纳秒), 未启用直方图或方法不存在时返回null
+     */
+    public LatencyHistogram getHistogram(String method) {
+        if (__histograms != null) {
+            for (int _idx = 0; _idx < METHOD_NAMES.length; _idx++) {
+                if (METHOD_NAMES[_idx].equals(method)) {
+                    return __histograms[_idx];
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return 返回已发生调用的各方法耗时快照, 值为{次数, 总耗时, 最大耗时, P50, P99, P99.9}, 耗时单位(纳秒), 未启用直方图时返回空集合
+     */
+    public Map<String, long[]> snapshot() {
+        if (__histograms == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, long[]> _snapshot = new HashMap<String, long[]>(METHOD_NAMES.length);
+        for (int _idx = 0; _idx < METHOD_NAMES.length; _idx++) {
+            LatencyHistogram _histogram = __histograms[_idx];
+            if (_histogram.getCount() > 0) {
+                _snapshot.put(METHOD_NAMES[_idx], new long[]{
+                        _histogram.getCount(),
+                        _histogram.getTotal(),
+                        _histogram.getMax(),
+                        _histogram.getValueAtPercentile(50),
+                        _histogram.getValueAtPercentile(99),
+                        _histogram.getValueAtPercentile(99.9)});
+            }
+        }
+        return Collections.unmodifiableMap(_snapshot);
+    }
+
+    public void reset() {
+        if (__histograms != null) {
+            for (LatencyHistogram _histogram : __histograms) {
+                _histogram.reset();
+            }
+        }
+    }
+
+    public OAuthClient findClientById(String clientId) throws Exception {
+        long _start = System.nanoTime();
+        TraceSpan _span = __startSpan(FIND_CLIENT_BY_ID);
+        try {
+            return __delegate.findClientById(clientId);
+        } finally {
+            __record(FIND_CLIENT_BY_ID, _start, _span);
+        }
+    }
+
+    public void registerClient(OAuthClient client) throws Exception {
+        __clientStorage().registerClient(client);
+    }
+
+    public void removeClient(String clientId) throws Exception {
+        __clientStorage().removeClient(clientId);
+    }
+
+    public String allocateOpenId(String clientId, String uid) throws Exception {
+        if (__delegate instanceof IOAuthOpenIdStorageAdapter) {
+            return ((IOAuthOpenIdStorageAdapter) __delegate).allocateOpenId(clientId, uid);
+        }
+        throw new UnsupportedOperationException(__delegate.getClass().getName() + " does not implement IOAuthOpenIdStorageAdapter.");
+    }
+
+    private IOAuthClientStorageAdapter __clientStorage() {
+        if (__delegate instanceof IOAuthClientStorageAdapter) {
+            return (IOAuthClientStorageAdapter) __delegate;
+        }
+        throw new UnsupportedOperationException(__delegate.getClass().getName() + " does not implement IOAuthClientStorageAdapter.");
+    }
+
+    public List<OAuthClient> listClients() throws Exception {
+        long _start = System.nanoTime();
+        TraceSpan _span = __startSpan(LIST_CLIENTS);
+        try {
+            return __delegate.listClients();
+        } finally {
+            __record(LIST_CLIENTS, _start, _span);
+        }
+    }
+
+    public OAuthClient findClientByAccessToken(String accessToken) throws Exception {
+        long _start = System.nanoTime();
+        TraceSpan _span = __startSpan(FIND_CLIENT_BY_ACCESS_TOKEN);
+        try {
+            return __delegate.findClientByAccessToken(accessToken);
+        } finally {
+            __record(FIND_CLIENT_BY_ACCESS_TOKEN, _start, _span);
+        }
+    }
+
+    public OAuthToken saveOrUpdateClientAccessToken(String clientId, String accessToken, int expiresIn) throws Exception {
+        long _start = System.nanoTime();
+        TraceSpan _span = __startSpan(SAVE_OR_UPDATE_CLIENT_ACCESS_TOKEN);
+        try {
+            return __delegate.saveOrUpdateClientAccessToken(clientId, accessToken, expiresIn);
+        } finally {
+            __record(SAVE_OR_UPDATE_CLIENT_ACCESS_TOKEN, _start, _span);
+        }
+    }
+
+    public OAuthCode saveOrUpdateAuthCode(String code, String redirectUri, String clientId, String uid, String scope) throws Exception {
+        long _start = System.nanoTime();
+        TraceSpan _span = __startSpan(SAVE_OR_UPDATE_AUTH_CODE);
+        try {
+            return __delegate.saveOrUpdateAuthCode(code, redirectUri, clientId, uid, scope);
+        } finally {
+            __record(SAVE_OR_UPDATE_AUTH_CODE, _start, _span);
+        }
+    }
+
+    public OAuthCode findAuthCode(String clientId, String authzCode) throws Exception {
+        long _start = System.nanoTime();
+        TraceSpan _span = __startSpan(FIND_AUTH_CODE);
+        try {
+            return __delegate.findAuthCode(clientId, authzCode);
+        } finally {
+            __record(FIND_AUTH_CODE, _start, _span);
+        }
+    }
+
+    public boolean consumeAuthCode(String clientId, String authzCode) throws Exception {
+        if (!(__delegate instanceof IOAuthAuthCodeConsumableStorageAdapter)) {
+            throw new UnsupportedOperationException(__delegate.getClass().getName() + " does not implement IOAuthAuthCodeConsumableStorageAdapter.");
+        }
+        long _start = System.nanoTime();
+        TraceSpan _span = __startSpan(CONSUME_AUTH_CODE);
+        try {
+            return ((IOAuthAuthCodeConsumableStorageAdapter) __delegate).consumeAuthCode(clientId, authzCode);
+        } finally {
+            __record(CONSUME_AUTH_CODE, _start, _span);
+        }
+    }
+
+    public OAuthSnsToken saveOrUpdateAccessToken(String clientId, String uid, String scope, String accessToken, String refreshToken, int expiresIn, boolean refresh) throws Exception {
+        long _start = System.nanoTime();
+        TraceSpan _span = __startSpan(SAVE_OR_UPDATE_ACCESS_TOKEN);
+        try {
+            return __delegate.saveOrUpdateAccessToken(clientId, uid, scope, accessToken, refreshToken, expiresIn, refresh);
+        } finally {
+            __record(SAVE_OR_UPDATE_ACCESS_TOKEN, _start, _span);
+        }
+    }
+
+    public OAuthSnsToken saveOrUpdateAccessToken(String clientId, String uid, String scope, String accessToken, String refreshToken, int expiresIn, long refreshExpireTime, boolean refresh) throws Exception {
+        long _start = System.nanoTime();
+        TraceSpan _span = __startSpan(SAVE_OR_UPDATE_ACCESS_TOKEN);
+        try {
+            return StorageBatchHelper.saveOrUpdateAccessToken(__delegate, clientId, uid, scope, accessToken, refreshToken, expiresIn, refreshExpireTime, refresh);
+        } finally {
+            __record(SAVE_OR_UPDATE_ACCESS_TOKEN, _start, _span);
+        }
+    }
+
+    public List<OAuthCode> saveOrUpdateAuthCodes(List<OAuthCode> authCodes) throws Exception {
+        long _start = System.nanoTime();
+        TraceSpan _span = __startSpan(SAVE_OR_UPDATE_AUTH_CODES);
+        try {
+            return StorageBatchHelper.saveOrUpdateAuthCodes(__delegate, authCodes);
+        } finally {
+            __record(SAVE_OR_UPDATE_AUTH_CODES, _start, _span);
+        }
+    }
+
+    public List<OAuthSnsToken> saveOrUpdateAccessTokens(List<OAuthTokenParams> tokens) throws Exception {
+        long _start = System.nanoTime();
+        TraceSpan _span = __startSpan(SAVE_OR_UPDATE_ACCESS_TOKENS);
+        try {
+            return StorageBatchHelper.saveOrUpdateAccessTokens(__delegate, tokens);
+        } finally {
+            __record(SAVE_OR_UPDATE_ACCESS_TOKENS, _start, _span);
+        }
+    }
+
+    public OAuthClientUser findUser(String clientId, String uid) throws Exception {
+        long _start = System.nanoTime();
+        TraceSpan _span = __startSpan(FIND_USER);
+        try {
+            return __delegate.findUser(clientId, uid);
+        } finally {
+            __record(FIND_USER, _start, _span);
+        }
+    }
+
+    public OAuthClientUser findUserByAccessToken(String accessToken) throws Exception {
+        long _start = System.nanoTime();
+        TraceSpan _span = __startSpan(FIND_USER_BY_ACCESS_TOKEN);
+        try {
+            return __delegate.findUserByAccessToken(accessToken);
+        } finally {
+            __record(FIND_USER_BY_ACCESS_TOKEN, _start, _span);
+        }
+    }
+
+    public OAuthClientUser findUserByRefreshToken(String clientId, String refreshToken) throws Exception {
+        long _start = System.nanoTime();
+        TraceSpan _span = __startSpan(FIND_USER_BY_REFRESH_TOKEN);
+        try {
+            return __delegate.findUserByRefreshToken(clientId, refreshToken);
+        } finally {
+            __record(FIND_USER_BY_REFRESH_TOKEN, _start, _span);
+        }
+    }
+
+    public int purgeExpiredAuthCodes(long createdBefore, int limit) throws Exception {
+        long _start = System.nanoTime();
+        TraceSpan _span = __startSpan(PURGE_EXPIRED_AUTH_CODES);
+        try {
+            if (__delegate instanceof IOAuthPurgeableStorageAdapter) {
+                return ((IOAuthPurgeableStorageAdapter) __delegate).purgeExpiredAuthCodes(createdBefore, limit);
+            }
+            return 0;
+        } finally {
+            __record(PURGE_EXPIRED_AUTH_CODES, _start, _span);
+        }
+    }
+
+    public int purgeExpiredAccessTokens(long now, int limit) throws Exception {
+        long _start = System.nanoTime();
+        TraceSpan _span = __startSpan(PURGE_EXPIRED_ACCESS_TOKENS);
+        try {
+            if (__delegate instanceof IOAuthPurgeableStorageAdapter) {
+                return ((IOAuthPurgeableStorageAdapter) __delegate).purgeExpiredAccessTokens(now, limit);
+            }
+            return 0;
+        } finally {
+            __record(PURGE_EXPIRED_ACCESS_TOKENS, _start, _span);
+        }
+    }
+
+    public int purgeExpiredRefreshTokens(long now, int limit) throws Exception {
+        long _start = System.nanoTime();
+        TraceSpan _span = __startSpan(PURGE_EXPIRED_REFRESH_TOKENS);
+        try {
+            if (__delegate instanceof IOAuthPurgeableStorageAdapter) {
+                return ((IOAuthPurgeableStorageAdapter) __delegate).purgeExpiredRefreshTokens(now, limit);
+            }
+            return 0;
+        } finally {
+            __record(PURGE_EXPIRED_REFRESH_TOKENS, _start, _span);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.impl;
+
+import com.alibaba.fastjson.JSONObject;
+import net.ymate.module.oauth.IOAuth;
+import net.ymate.module.oauth.IOAuthMetricsRegistry;
+import net.ymate.module.oauth.IOAuthUserInfoAdapter;
+import net.ymate.module.oauth.support.OAuthMetrics;
+import net.ymate.module.oauth.support.TraceSpan;
+import net.ymate.module.oauth.support.Tracer;
+
+/**
+ * 用户身份信息适配器度量装饰器, 记录verify及getUserInfo方法调用耗时, 启用请求追踪时为每次调用创建追踪片段
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/06/06 下午2:35
+ * @version 1.0
+ */
+public class InstrumentedUserInfoAdapter implements IOAuthUserInfoAdapter {
+
+    /**
+     * 适配器度量标签值
+     */
+    public static final String ADAPTER_NAME = "userinfo";
+
+    private final IOAuthUserInfoAdapter __delegate;
+
+    private IOAuthMetricsRegistry.ITimer __verifyTimer;
+
+    private IOAuthMetricsRegistry.ITimer __getUserInfoTimer;
+
+    private Tracer __tracer;
+
+    /**
+     * @param delegate 被装饰的用户身份信息适配器
+     */
+    public InstrumentedUserInfoAdapter(IOAuthUserInfoAdapter delegate) {
+        if (delegate == null) {
+            throw new NullPointerException("delegate");
+        }
+        __delegate = delegate;
+    }
+
+    /**
+     * @return 返回被装饰的用户身份信息适配器
+     */
+    public IOAuthUserInfoAdapter getDelegate() {
+        return __delegate;
+    }
+
+    public void init(IOAuth owner) {
+        OAuthMetrics _metrics = owner.getMetrics();
+        __verifyTimer = _metrics.adapterTimer(ADAPTER_NAME, "verify");
+        __getUserInfoTimer = _metrics.adapterTimer(ADAPTER_NAME, "getUserInfo");
+        __tracer = owner.getTracer();
+        __delegate.init(owner);
+    }
+
+    public void destroy() {
+        __delegate.destroy();
+    }
+
+    public String verify(String username, String passwd) throws Exception {
+        long _start = System.nanoTime();
+        TraceSpan _span = __tracer != null ? __tracer.startSpan(ADAPTER_NAME + ".verify") : TraceSpan.NOOP;
+        try {
+            return __delegate.verify(username, passwd);
+        } finally {
+            _span.end();
+            if (__verifyTimer != null) {
+                __verifyTimer.record(System.nanoTime() - _start);
+            }
+        }
+    }
+
+    public JSONObject getUserInfo(String uid) throws Exception {
+        long _start = System.nanoTime();
+        TraceSpan _span = __tracer != null ? __tracer.startSpan(ADAPTER_NAME + ".getUserInfo") : TraceSpan.NOOP;
+        try {
+            return __delegate.getUserInfo(uid);
+        } finally {
+            _span.end();
+            if (__getUserInfoTimer != null) {
+                __getUserInfoTimer.record(System.nanoTime() - _start);
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.impl;
+
+import com.alibaba.fastjson.JSONObject;
+import net.ymate.module.oauth.IOAuth;
+import net.ymate.module.oauth.IOAuthSpanExporter;
+import net.ymate.module.oauth.support.TraceSpan;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * 日志追踪片段导出器, 以INFO级别每行输出一个JSON格式的片段(字段命名与OpenTelemetry一致),
+ * 可通过日志配置将该类对应的日志记录器输出至独立文件, 再由日志采集组件(如: OpenTelemetry Collector)转发
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/06/07 下午2:00
+ * @version 1.0
+ */
+public class LogSpanExporter implements IOAuthSpanExporter {
+
+    private static final Log _LOG = LogFactory.getLog(LogSpanExporter.class);
+
+    public void init(IOAuth owner) {
+        if (!_LOG.isInfoEnabled()) {
+            _LOG.warn("Log level of " + LogSpanExporter.class.getName() + " is above INFO, trace spans will be discarded.");
+        }
+    }
+
+    public void destroy() {
+    }
+
+    public void export(TraceSpan span) {
+        if (_LOG.isInfoEnabled()) {
+            JSONObject _json = new JSONObject(true);
+            _json.put("traceId", span.getTraceId());
+            _json.put("spanId", span.getSpanId());
+            if (span.getParentSpanId() != null) {
+                _json.put("parentSpanId", span.getParentSpanId());
+            }
+            _json.put("name", span.getName());
+            _json.put("startTimeUnixNano", span.getStartTime());
+            _json.put("endTimeUnixNano", span.getStartTime() + span.getDuration());
+            _json.put("status", span.getStatus());
+            if (!span.getAttributes().isEmpty()) {
+                _json.put("attributes", span.getAttributes());
+            }
+            _LOG.info(_json.toJSONString());
+        }
+    }
+}
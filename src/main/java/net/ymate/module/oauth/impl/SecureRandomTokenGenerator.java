@@ -0,0 +1,120 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.impl;
+
+import net.ymate.module.oauth.IOAuthTokenGenerator;
+import net.ymate.module.oauth.support.Base64Url;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * 基于SecureRandom的高吞吐Token生成器, 每个线程独立持有随机数源及可复用的字节/字符缓冲区,
+ * 随机字节直接编码为URL安全的Base64字符串, 除结果字符串外不产生中间对象
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/05/23 上午10:36
+ * @version 1.0
+ */
+public class SecureRandomTokenGenerator implements IOAuthTokenGenerator {
+
+    /**
+     * 默认随机字节数量(256位熵, 编码后长度为43个字符)
+     */
+    public static final int DEFAULT_ENTROPY_BYTES = 32;
+
+    private static final SecureRandom __SEED_SOURCE = new SecureRandom();
+
+    private volatile int __entropyBytes;
+
+    private final ThreadLocal<Buffer> __buffers = new ThreadLocal<Buffer>() {
+        @Override
+        protected Buffer initialValue() {
+            return new Buffer();
+        }
+    };
+
+    public SecureRandomTokenGenerator() {
+        this(DEFAULT_ENTROPY_BYTES);
+    }
+
+    /**
+     * @param entropyBytes 每个Token包含的随机字节数量
+     */
+    public SecureRandomTokenGenerator(int entropyBytes) {
+        setEntropyBytes(entropyBytes);
+    }
+
+    public int getEntropyBytes() {
+        return __entropyBytes;
+    }
+
+    /**
+     * @param entropyBytes 每个Token包含的随机字节数量, 不得小于16(128位熵)
+     */
+    public void setEntropyBytes(int entropyBytes) {
+        if (entropyBytes < 16) {
+            throw new IllegalArgumentException("entropyBytes must be at least 16.");
+        }
+        __entropyBytes = entropyBytes;
+    }
+
+    private String __nextToken() {
+        int _length = __entropyBytes;
+        Buffer _buffer = __buffers.get();
+        if (_buffer.bytes.length != _length) {
+            _buffer.bytes = new byte[_length];
+            _buffer.chars = new char[Base64Url.encodedLength(_length)];
+        }
+        _buffer.random.nextBytes(_buffer.bytes);
+        return new String(_buffer.chars, 0, Base64Url.encode(_buffer.bytes, _length, _buffer.chars));
+    }
+
+    public String accessToken() throws Exception {
+        return __nextToken();
+    }
+
+    public String authorizationCode() throws Exception {
+        return __nextToken();
+    }
+
+    public String refreshToken() throws Exception {
+        return __nextToken();
+    }
+
+    private static class Buffer {
+
+        final SecureRandom random;
+
+        byte[] bytes = new byte[0];
+
+        char[] chars = new char[0];
+
+        Buffer() {
+            SecureRandom _random;
+            try {
+                // 使用实例级状态的算法, 避免多线程竞争系统熵源的全局锁
+                _random = SecureRandom.getInstance("SHA1PRNG");
+            } catch (NoSuchAlgorithmException e) {
+                _random = new SecureRandom();
+            }
+            // generateSeed()可能读取阻塞熵源(如: /dev/random), 改为从已初始化的共享实例取种子字节, 不会阻塞
+            byte[] _seed = new byte[32];
+            __SEED_SOURCE.nextBytes(_seed);
+            _random.setSeed(_seed);
+            random = _random;
+        }
+    }
+}
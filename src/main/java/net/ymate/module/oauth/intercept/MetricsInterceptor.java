@@ -0,0 +1,42 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.intercept;
+
+import net.ymate.module.oauth.OAuth;
+import net.ymate.platform.core.beans.intercept.IInterceptor;
+import net.ymate.platform.core.beans.intercept.InterceptContext;
+import net.ymate.platform.webmvc.context.WebContext;
+
+/**
+ * 按请求映射及授权类型记录请求耗时: 前置时开始计时, 后置时计入当前端点及grant_type参数值
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/06/06 下午3:00
+ * @version 1.0
+ */
+public class MetricsInterceptor implements IInterceptor {
+
+    public Object intercept(InterceptContext context) throws Exception {
+        switch (context.getDirection()) {
+            case BEFORE:
+                OAuth.get().getMetrics().begin();
+                break;
+            case AFTER:
+                OAuth.get().getMetrics().end(WebContext.getRequestContext().getRequestMapping(), WebContext.getRequest().getParameter(org.apache.oltu.oauth2.common.OAuth.OAUTH_GRANT_TYPE));
+                break;
+        }
+        return null;
+    }
+}
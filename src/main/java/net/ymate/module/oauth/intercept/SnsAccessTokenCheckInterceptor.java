@@ -17,17 +17,18 @@ package net.ymate.module.oauth.intercept;
 
 import net.ymate.module.oauth.IOAuth;
 import net.ymate.module.oauth.OAuth;
+import net.ymate.module.oauth.OAuthRequestContext;
+import net.ymate.module.oauth.support.AccessTokenExtractor;
+import net.ymate.module.oauth.support.PreparedResponse;
+import net.ymate.module.oauth.support.StorageCallStats;
 import net.ymate.platform.core.beans.intercept.IInterceptor;
 import net.ymate.platform.core.beans.intercept.InterceptContext;
 import net.ymate.platform.webmvc.context.WebContext;
 import net.ymate.platform.webmvc.view.impl.HttpStatusView;
 import org.apache.commons.lang.StringUtils;
 import org.apache.oltu.oauth2.as.response.OAuthASResponse;
-import org.apache.oltu.oauth2.common.error.OAuthError;
 import org.apache.oltu.oauth2.common.exception.OAuthProblemException;
 import org.apache.oltu.oauth2.common.message.OAuthResponse;
-import org.apache.oltu.oauth2.common.message.types.ParameterStyle;
-import org.apache.oltu.oauth2.rs.request.OAuthAccessResourceRequest;
 
 import javax.servlet.http.HttpServletResponse;
 
@@ -40,32 +41,49 @@ public class SnsAccessTokenCheckInterceptor implements IInterceptor {
     public Object intercept(InterceptContext context) throws Exception {
         switch (context.getDirection()) {
             case BEFORE:
+                OAuth.get().getTracer().step("oauth.check_token");
+                StorageCallStats.reset();
+                StorageCallStats.bindEndpoint(WebContext.getRequestContext().getRequestMapping());
+                boolean _passed = false;
                 try {
-                    OAuthAccessResourceRequest _oauthRequest = new OAuthAccessResourceRequest(WebContext.getRequest(), ParameterStyle.QUERY);
+                    String _accessToken = AccessTokenExtractor.extract(WebContext.getRequest(), OAuth.get().getModuleCfg().getTokenParameterStyles());
                     String _openId = WebContext.getRequest().getParameter(IOAuth.Const.OPEN_ID);
                     String _scope = context.getContextParams().get(org.apache.oltu.oauth2.common.OAuth.OAUTH_SCOPE);
-                    OAuthResponse _response = null;
+                    PreparedResponse _response = null;
+                    IOAuth.IOAuthAccessResourceHelper _resourceHelper = null;
                     if (StringUtils.isBlank(_openId)) {
-                        _response = OAuthASResponse.errorResponse(HttpServletResponse.SC_UNAUTHORIZED).setError(IOAuth.Const.INVALID_USER).buildJSONMessage();
+                        _response = PreparedResponse.INVALID_USER;
                     } else {
-                        IOAuth.IOAuthAccessResourceHelper _resourceHelper = OAuth.get().bindAccessResourceHelper(_oauthRequest.getAccessToken(), _openId);
+                        _resourceHelper = OAuth.get().bindAccessResourceHelper(_accessToken, _openId);
                         if (!_resourceHelper.checkAccessToken()) {
-                            _response = OAuthASResponse.errorResponse(HttpServletResponse.SC_UNAUTHORIZED).setError(OAuthError.ResourceResponse.INVALID_TOKEN).buildJSONMessage();
+                            _response = PreparedResponse.INVALID_TOKEN;
                         } else if (_resourceHelper.isExpiredAccessToken()) {
-                            _response = OAuthASResponse.errorResponse(HttpServletResponse.SC_UNAUTHORIZED).setError(OAuthError.ResourceResponse.EXPIRED_TOKEN).buildJSONMessage();
-                        } else if (StringUtils.isNotBlank(_scope) && !_resourceHelper.checkScope(_scope)) {
-                            _response = OAuthASResponse.errorResponse(HttpServletResponse.SC_UNAUTHORIZED).setError(OAuthError.ResourceResponse.INSUFFICIENT_SCOPE).buildJSONMessage();
+                            _response = PreparedResponse.EXPIRED_TOKEN;
+                        } else if (StringUtils.isNotBlank(_scope) && !_resourceHelper.checkScope(OAuth.get().getScopeRegistry().mask(_scope))) {
+                            _response = PreparedResponse.INSUFFICIENT_SCOPE;
                         }
                     }
                     if (_response != null) {
-                        return new HttpStatusView(_response.getResponseStatus(), false).writeBody(_response.getBody());
+                        // 请求被拒绝时不会进入控制器方法, 在此汇总度量指标, 存储调用次数在finally中汇总
+                        OAuth.get().getMetrics().reject(WebContext.getRequestContext().getRequestMapping(), _response.getError());
+                        OAuth.get().getTracer().endTrace(_response.getError());
+                        return _response.write(WebContext.getResponse());
                     }
+                    OAuthRequestContext.bind(WebContext.getRequest(), new OAuthRequestContext(_accessToken, _openId, _resourceHelper));
+                    _passed = true;
                 } catch (OAuthProblemException e) {
+                    OAuth.get().getMetrics().reject(WebContext.getRequestContext().getRequestMapping(), e.getError());
+                    OAuth.get().getTracer().endTrace(e.getError());
                     OAuthResponse _response = OAuthASResponse
                             .errorResponse(HttpServletResponse.SC_BAD_REQUEST)
                             .error(e)
                             .buildJSONMessage();
                     return new HttpStatusView(_response.getResponseStatus(), false).writeBody(_response.getBody());
+                } finally {
+                    if (!_passed) {
+                        // 未通过校验(含异常)时汇总存储调用次数, 同时清零当前线程计数并解除端点绑定
+                        OAuth.get().getStorageCallStats().record(WebContext.getRequestContext().getRequestMapping());
+                    }
                 }
         }
         return null;
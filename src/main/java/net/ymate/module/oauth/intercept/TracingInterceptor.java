@@ -0,0 +1,54 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.intercept;
+
+import net.ymate.module.oauth.OAuth;
+import net.ymate.module.oauth.support.Tracer;
+import net.ymate.platform.core.beans.intercept.IInterceptor;
+import net.ymate.platform.core.beans.intercept.InterceptContext;
+import net.ymate.platform.webmvc.context.WebContext;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * 请求追踪拦截器: 前置时按请求映射开始追踪(延续traceparent请求头中的上游追踪), 后置时结束根片段
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/06/07 下午2:30
+ * @version 1.0
+ */
+public class TracingInterceptor implements IInterceptor {
+
+    public Object intercept(InterceptContext context) throws Exception {
+        Tracer _tracer = OAuth.get().getTracer();
+        if (!_tracer.isEnabled()) {
+            return null;
+        }
+        switch (context.getDirection()) {
+            case BEFORE:
+                HttpServletRequest _request = WebContext.getRequest();
+                String _mapping = WebContext.getRequestContext().getRequestMapping();
+                _tracer.startTrace(_request.getMethod() + " " + _mapping, _request.getHeader(Tracer.TRACEPARENT))
+                        .setAttribute("http.method", _request.getMethod())
+                        .setAttribute("http.route", _mapping)
+                        .setAttribute("oauth.grant_type", _request.getParameter(org.apache.oltu.oauth2.common.OAuth.OAUTH_GRANT_TYPE));
+                break;
+            case AFTER:
+                _tracer.endTrace(null);
+                break;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.support;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.oltu.oauth2.common.OAuth;
+import org.apache.oltu.oauth2.common.error.OAuthError;
+import org.apache.oltu.oauth2.common.exception.OAuthProblemException;
+import org.apache.oltu.oauth2.common.message.types.ParameterStyle;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * 访问凭证提取器, 按请求头(Authorization: Bearer)、URL参数、表单请求体的顺序提取访问凭证,
+ * 直接解析请求内容而无需为每个请求构建OAuthAccessResourceRequest及其校验器; 错误信息与Oltu保持一致
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/05/29 下午2:20
+ * @version 1.0
+ */
+public final class AccessTokenExtractor {
+
+    private static final String BEARER = "Bearer";
+
+    private static final String FORM_CONTENT_TYPE = "application/x-www-form-urlencoded";
+
+    private AccessTokenExtractor() {
+    }
+
+    /**
+     * @param request HttpServletRequest对象
+     * @param styles  允许的访问凭证传递方式
+     * @return 返回访问凭证
+     * @throws OAuthProblemException 访问凭证缺失、重复或同时使用多种传递方式时抛出
+     */
+    public static String extract(HttpServletRequest request, Set<ParameterStyle> styles) throws OAuthProblemException {
+        String _token = null;
+        if (styles.contains(ParameterStyle.HEADER)) {
+            _token = __fromHeader(request);
+        }
+        boolean _inQuery = false;
+        if (styles.contains(ParameterStyle.QUERY)) {
+            String _queryToken = __fromQuery(request.getQueryString());
+            if (_queryToken != null) {
+                _token = __single(_token, _queryToken);
+                _inQuery = true;
+            }
+        }
+        // 请求体参数与URL参数无法通过Servlet API区分, 若URL中已包含访问凭证则不再检查请求体
+        if (!_inQuery && styles.contains(ParameterStyle.BODY) && __isFormBody(request)) {
+            String _bodyToken = __fromParameters(request);
+            if (_bodyToken != null) {
+                _token = __single(_token, _bodyToken);
+            }
+        }
+        if (_token == null) {
+            throw OAuthProblemException.error("", "Missing OAuth token.");
+        }
+        return _token;
+    }
+
+    /**
+     * @param styles 传递方式名称, 多个用'|'分隔(header|query|body), 忽略大小写
+     * @return 返回解析后的传递方式集合
+     */
+    public static Set<ParameterStyle> parseStyles(String styles) {
+        Set<ParameterStyle> _styles = EnumSet.noneOf(ParameterStyle.class);
+        for (String _style : StringUtils.split(StringUtils.trimToEmpty(styles), "|")) {
+            if (StringUtils.isNotBlank(_style)) {
+                _styles.add(ParameterStyle.valueOf(StringUtils.upperCase(StringUtils.trim(_style))));
+            }
+        }
+        return _styles;
+    }
+
+    private static String __single(String current, String found) throws OAuthProblemException {
+        if (current != null) {
+            throw OAuthProblemException.error(OAuthError.TokenResponse.INVALID_REQUEST, "Found more than one mechanism for authenticating client");
+        }
+        return found;
+    }
+
+    private static String __fromHeader(HttpServletRequest request) {
+        String _header = request.getHeader(OAuth.HeaderType.AUTHORIZATION);
+        if (_header == null) {
+            return null;
+        }
+        int _len = _header.length();
+        int _start = 0;
+        while (_start < _len && _header.charAt(_start) == ' ') {
+            _start++;
+        }
+        if (!_header.regionMatches(true, _start, BEARER, 0, BEARER.length())) {
+            return null;
+        }
+        _start += BEARER.length();
+        if (_start >= _len || _header.charAt(_start) != ' ') {
+            return null;
+        }
+        while (_start < _len && _header.charAt(_start) == ' ') {
+            _start++;
+        }
+        int _end = _start;
+        while (_end < _len && _header.charAt(_end) != ' ' && _header.charAt(_end) != ',') {
+            _end++;
+        }
+        return _end > _start ? _header.substring(_start, _end) : null;
+    }
+
+    /**
+     * 在原始查询字符串中查找access_token(或oauth_token)参数, 仅在值包含编码字符时进行URL解码
+     */
+    private static String __fromQuery(String queryString) throws OAuthProblemException {
+        if (queryString == null || queryString.length() == 0) {
+            return null;
+        }
+        String _token = __findQueryParam(queryString, OAuth.OAUTH_BEARER_TOKEN);
+        if (_token == null) {
+            _token = __findQueryParam(queryString, OAuth.OAUTH_TOKEN);
+        }
+        return _token;
+    }
+
+    private static String __findQueryParam(String queryString, String name) throws OAuthProblemException {
+        String _value = null;
+        int _len = queryString.length();
+        int _pos = 0;
+        while (_pos < _len) {
+            int _end = queryString.indexOf('&', _pos);
+            if (_end < 0) {
+                _end = _len;
+            }
+            int _nameEnd = _pos + name.length();
+            if (_nameEnd < _end && queryString.charAt(_nameEnd) == '=' && queryString.startsWith(name, _pos)) {
+                if (_value != null) {
+                    throw OAuthProblemException.error(OAuthError.TokenResponse.INVALID_REQUEST, "Multiple tokens attached.");
+                }
+                _value = __decode(queryString.substring(_nameEnd + 1, _end));
+            }
+            _pos = _end + 1;
+        }
+        return StringUtils.isEmpty(_value) ? null : _value;
+    }
+
+    private static String __decode(String value) {
+        if (value.indexOf('%') < 0 && value.indexOf('+') < 0) {
+            return value;
+        }
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        } catch (IllegalArgumentException e) {
+            return value;
+        }
+    }
+
+    private static boolean __isFormBody(HttpServletRequest request) {
+        String _method = request.getMethod();
+        if (!"POST".equalsIgnoreCase(_method) && !"PUT".equalsIgnoreCase(_method) && !"DELETE".equalsIgnoreCase(_method)) {
+            return false;
+        }
+        String _contentType = request.getContentType();
+        return _contentType != null && _contentType.regionMatches(true, 0, FORM_CONTENT_TYPE, 0, FORM_CONTENT_TYPE.length());
+    }
+
+    private static String __fromParameters(HttpServletRequest request) throws OAuthProblemException {
+        String[] _values = request.getParameterValues(OAuth.OAUTH_BEARER_TOKEN);
+        if (_values == null) {
+            _values = request.getParameterValues(OAuth.OAUTH_TOKEN);
+        }
+        if (_values == null || _values.length == 0) {
+            return null;
+        }
+        if (_values.length > 1) {
+            throw OAuthProblemException.error(OAuthError.TokenResponse.INVALID_REQUEST, "Multiple tokens attached.");
+        }
+        return StringUtils.isEmpty(_values[0]) ? null : _values[0];
+    }
+}
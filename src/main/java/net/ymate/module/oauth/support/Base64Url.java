@@ -0,0 +1,140 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.support;
+
+import java.util.Arrays;
+
+/**
+ * URL安全的Base64编解码工具(RFC 4648 §5, 无填充字符)
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/05/22 下午4:18
+ * @version 1.0
+ */
+public final class Base64Url {
+
+    private static final char[] __ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+
+    private static final int[] __INDEXES = new int[128];
+
+    static {
+        Arrays.fill(__INDEXES, -1);
+        for (int _idx = 0; _idx < __ALPHABET.length; _idx++) {
+            __INDEXES[__ALPHABET[_idx]] = _idx;
+        }
+    }
+
+    private Base64Url() {
+    }
+
+    /**
+     * @param length 原始字节长度
+     * @return 返回编码后的字符长度
+     */
+    public static int encodedLength(int length) {
+        return (length / 3) * 4 + (length % 3 == 0 ? 0 : length % 3 + 1);
+    }
+
+    /**
+     * 将字节数组编码写入目标字符数组
+     *
+     * @param src    原始字节数组
+     * @param srcLen 待编码字节长度
+     * @param dst    目标字符数组, 长度不小于{@link #encodedLength(int)}
+     * @return 返回写入的字符数量
+     */
+    public static int encode(byte[] src, int srcLen, char[] dst) {
+        int _sp = 0;
+        int _dp = 0;
+        int _full = srcLen - srcLen % 3;
+        while (_sp < _full) {
+            int _bits = (src[_sp++] & 0xff) << 16 | (src[_sp++] & 0xff) << 8 | (src[_sp++] & 0xff);
+            dst[_dp++] = __ALPHABET[(_bits >>> 18) & 0x3f];
+            dst[_dp++] = __ALPHABET[(_bits >>> 12) & 0x3f];
+            dst[_dp++] = __ALPHABET[(_bits >>> 6) & 0x3f];
+            dst[_dp++] = __ALPHABET[_bits & 0x3f];
+        }
+        int _remain = srcLen - _full;
+        if (_remain > 0) {
+            int _bits = (src[_sp++] & 0xff) << 10;
+            if (_remain == 2) {
+                _bits |= (src[_sp] & 0xff) << 2;
+            }
+            dst[_dp++] = __ALPHABET[(_bits >>> 12) & 0x3f];
+            dst[_dp++] = __ALPHABET[(_bits >>> 6) & 0x3f];
+            if (_remain == 2) {
+                dst[_dp++] = __ALPHABET[_bits & 0x3f];
+            }
+        }
+        return _dp;
+    }
+
+    public static String encode(byte[] src) {
+        char[] _dst = new char[encodedLength(src.length)];
+        encode(src, src.length, _dst);
+        return new String(_dst);
+    }
+
+    /**
+     * @param src 待解码字符串
+     * @return 返回解码后的字节数组, 若包含非法字符或为非规范编码则返回null
+     */
+    public static byte[] decode(String src) {
+        return src == null ? null : decode(src, 0, src.length());
+    }
+
+    /**
+     * @param src   待解码字符串
+     * @param start 起始位置(包含)
+     * @param end   结束位置(不包含)
+     * @return 返回解码后的字节数组, 若包含非法字符或末位字符含有非零填充位(非规范编码)则返回null
+     */
+    public static byte[] decode(String src, int start, int end) {
+        int _len = end - start;
+        if (_len < 0 || _len % 4 == 1) {
+            return null;
+        }
+        byte[] _dst = new byte[(_len / 4) * 3 + (_len % 4 == 0 ? 0 : _len % 4 - 1)];
+        int _dp = 0;
+        int _bits = 0;
+        int _count = 0;
+        for (int _idx = start; _idx < end; _idx++) {
+            char _c = src.charAt(_idx);
+            int _value = _c < 128 ? __INDEXES[_c] : -1;
+            if (_value < 0) {
+                return null;
+            }
+            _bits = _bits << 6 | _value;
+            if (++_count == 4) {
+                _dst[_dp++] = (byte) (_bits >>> 16);
+                _dst[_dp++] = (byte) (_bits >>> 8);
+                _dst[_dp++] = (byte) _bits;
+                _bits = 0;
+                _count = 0;
+            }
+        }
+        // 末位字符未使用的低位必须为0, 保证每个字节序列仅有唯一合法编码
+        if (_count == 3 && (_bits & 0x3) != 0 || _count == 2 && (_bits & 0xf) != 0) {
+            return null;
+        }
+        if (_count == 3) {
+            _dst[_dp++] = (byte) (_bits >>> 10);
+            _dst[_dp] = (byte) (_bits >>> 2);
+        } else if (_count == 2) {
+            _dst[_dp] = (byte) (_bits >>> 4);
+        }
+        return _dst;
+    }
+}
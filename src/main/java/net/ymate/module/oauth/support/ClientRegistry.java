@@ -0,0 +1,176 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.support;
+
+import net.ymate.module.oauth.IOAuthStorageAdapter;
+import net.ymate.module.oauth.OAuthClient;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 应用信息注册表, 启动时通过{@link IOAuthStorageAdapter#listClients()}全量加载并常驻内存,
+ * 读操作无锁访问不可变快照, 更新时复制并替换快照(写时复制);
+ * 支持定时增量刷新(仅替换最后修改时间发生变化的条目)及按应用主动失效
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/05/27 上午9:40
+ * @version 1.0
+ */
+public class ClientRegistry {
+
+    private static final Log _LOG = LogFactory.getLog(ClientRegistry.class);
+
+    private final IOAuthStorageAdapter __storage;
+
+    private volatile Map<String, OAuthClient> __clients = Collections.emptyMap();
+
+    private ScheduledExecutorService __refreshExecutor;
+
+    /**
+     * @param storage 令牌存储适配器
+     */
+    public ClientRegistry(IOAuthStorageAdapter storage) {
+        if (storage == null) {
+            throw new NullPointerException("storage");
+        }
+        __storage = storage;
+    }
+
+    /**
+     * 全量加载应用信息并启动定时刷新
+     *
+     * @param refreshInterval 定时刷新间隔, 单位(秒), 小于等于0表示不定时刷新
+     * @throws Exception 可能产生的任何异常
+     */
+    public void init(int refreshInterval) throws Exception {
+        refresh();
+        _LOG.info("Client registry loaded " + __clients.size() + " client(s).");
+        //
+        if (refreshInterval > 0) {
+            __refreshExecutor = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("oauth-client-registry-refresh"));
+            __refreshExecutor.scheduleWithFixedDelay(new Runnable() {
+                public void run() {
+                    try {
+                        refresh();
+                    } catch (Throwable e) {
+                        _LOG.warn("", e);
+                    }
+                }
+            }, refreshInterval, refreshInterval, TimeUnit.SECONDS);
+        }
+    }
+
+    public void destroy() {
+        if (__refreshExecutor != null) {
+            __refreshExecutor.shutdownNow();
+            __refreshExecutor = null;
+        }
+        __clients = Collections.emptyMap();
+    }
+
+    /**
+     * @param clientId 应用唯一标识
+     * @return 返回应用信息, 若不存在则返回null(返回对象为共享快照, 不可修改)
+     */
+    public OAuthClient get(String clientId) {
+        return clientId == null ? null : __clients.get(clientId);
+    }
+
+    /**
+     * @param clientId 应用唯一标识
+     * @return 返回注册表中是否存在该应用
+     */
+    public boolean contains(String clientId) {
+        return clientId != null && __clients.containsKey(clientId);
+    }
+
+    public int size() {
+        return __clients.size();
+    }
+
+    /**
+     * 重新加载全部应用信息, 最后修改时间未变化的条目沿用原对象
+     *
+     * @throws Exception 可能产生的任何异常
+     */
+    public synchronized void refresh() throws Exception {
+        List<OAuthClient> _clients = __storage.listClients();
+        Map<String, OAuthClient> _origin = __clients;
+        Map<String, OAuthClient> _snapshot = new HashMap<String, OAuthClient>(_clients == null ? 16 : _clients.size() * 4 / 3 + 1);
+        int _changed = 0;
+        if (_clients != null) {
+            for (OAuthClient _client : _clients) {
+                if (_client == null || _client.getId() == null) {
+                    continue;
+                }
+                OAuthClient _current = _origin.get(_client.getId());
+                if (_current != null && _current.getLastModifyTime() != null && _current.getLastModifyTime().equals(_client.getLastModifyTime())) {
+                    _snapshot.put(_client.getId(), _current);
+                } else {
+                    _snapshot.put(_client.getId(), _client);
+                    _changed++;
+                }
+            }
+        }
+        if (_changed > 0 || _snapshot.size() != _origin.size()) {
+            __clients = Collections.unmodifiableMap(_snapshot);
+        }
+    }
+
+    /**
+     * 从存储中重新读取指定应用信息并更新注册表(应用信息或授权令牌变更后调用)
+     *
+     * @param clientId 应用唯一标识
+     * @return 返回最新的应用信息, 若已不存在则返回null
+     * @throws Exception 可能产生的任何异常
+     */
+    public OAuthClient invalidate(String clientId) throws Exception {
+        OAuthClient _client = __storage.findClientById(clientId);
+        if (_client != null) {
+            put(_client);
+        } else {
+            remove(clientId);
+        }
+        return _client;
+    }
+
+    /**
+     * @param client 应用信息
+     */
+    public synchronized void put(OAuthClient client) {
+        Map<String, OAuthClient> _snapshot = new HashMap<String, OAuthClient>(__clients);
+        _snapshot.put(client.getId(), client);
+        __clients = Collections.unmodifiableMap(_snapshot);
+    }
+
+    /**
+     * @param clientId 应用唯一标识
+     */
+    public synchronized void remove(String clientId) {
+        if (__clients.containsKey(clientId)) {
+            Map<String, OAuthClient> _snapshot = new HashMap<String, OAuthClient>(__clients);
+            _snapshot.remove(clientId);
+            __clients = Collections.unmodifiableMap(_snapshot);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.support;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 守护线程工厂, 线程名称格式为: 前缀-序号
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/05/25 上午9:48
+ * @version 1.0
+ */
+public class DaemonThreadFactory implements ThreadFactory {
+
+    private static final ThreadLocal<DaemonThreadFactory> __OWNER = new ThreadLocal<DaemonThreadFactory>();
+
+    private final String __namePrefix;
+
+    private final AtomicInteger __counter = new AtomicInteger();
+
+    public DaemonThreadFactory(String namePrefix) {
+        __namePrefix = namePrefix;
+    }
+
+    /**
+     * @return 当前线程是否由本工厂创建(用于避免在线程池内部提交并等待子任务而导致线程饥饿)
+     */
+    public boolean isCurrentThreadOwned() {
+        return __OWNER.get() == this;
+    }
+
+    public Thread newThread(final Runnable r) {
+        Thread _thread = new Thread(new Runnable() {
+            public void run() {
+                __OWNER.set(DaemonThreadFactory.this);
+                r.run();
+            }
+        }, __namePrefix + "-" + __counter.incrementAndGet());
+        _thread.setDaemon(true);
+        return _thread;
+    }
+}
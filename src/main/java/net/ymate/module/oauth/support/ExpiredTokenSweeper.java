@@ -0,0 +1,208 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.support;
+
+import net.ymate.module.oauth.IOAuthPurgeableStorageAdapter;
+import net.ymate.platform.core.util.DateTimeUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 过期令牌清理器, 由后台线程定期调用存储适配器的清理接口; 授权码(有效期5分钟)与访问凭证、刷新凭证分别调度,
+ * 每轮清理按批次执行且批次数量有上限, 批次之间按速率限制暂停, 避免长时间占用存储
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/05/31 上午10:45
+ * @version 1.0
+ */
+public class ExpiredTokenSweeper {
+
+    private static final Log _LOG = LogFactory.getLog(ExpiredTokenSweeper.class);
+
+    /**
+     * 授权码有效期(5分钟)
+     */
+    public static final long AUTH_CODE_EXPIRE_IN = 5 * DateTimeUtils.MINUTE;
+
+    public static final String AUTH_CODES = "auth_codes";
+
+    public static final String ACCESS_TOKENS = "access_tokens";
+
+    public static final String REFRESH_TOKENS = "refresh_tokens";
+
+    private final IOAuthPurgeableStorageAdapter __storage;
+
+    private final int __batchSize;
+
+    private final int __maxBatches;
+
+    private final long __batchPause;
+
+    private final Map<String, Stat> __stats;
+
+    private ScheduledExecutorService __sweepExecutor;
+
+    /**
+     * @param storage    支持清理过期数据的令牌存储适配器
+     * @param batchSize  每批次最大清理数量
+     * @param maxBatches 每轮清理最大批次数量
+     * @param rateLimit  每秒最多执行的批次数量, 小于等于0表示不限制
+     */
+    public ExpiredTokenSweeper(IOAuthPurgeableStorageAdapter storage, int batchSize, int maxBatches, int rateLimit) {
+        if (storage == null) {
+            throw new NullPointerException("storage");
+        }
+        __storage = storage;
+        __batchSize = Math.max(1, batchSize);
+        __maxBatches = Math.max(1, maxBatches);
+        __batchPause = rateLimit > 0 ? 1000L / rateLimit : 0;
+        //
+        Map<String, Stat> _stats = new LinkedHashMap<String, Stat>();
+        _stats.put(AUTH_CODES, new Stat());
+        _stats.put(ACCESS_TOKENS, new Stat());
+        _stats.put(REFRESH_TOKENS, new Stat());
+        __stats = Collections.unmodifiableMap(_stats);
+    }
+
+    /**
+     * 启动后台清理线程
+     *
+     * @param authCodeInterval 授权码清理间隔, 单位(秒)
+     * @param tokenInterval    访问凭证及刷新凭证清理间隔, 单位(秒)
+     */
+    public void init(int authCodeInterval, int tokenInterval) {
+        __sweepExecutor = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("oauth-token-sweeper"));
+        __sweepExecutor.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                sweepAuthCodes();
+            }
+        }, authCodeInterval, Math.max(1, authCodeInterval), TimeUnit.SECONDS);
+        __sweepExecutor.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                sweepAccessTokens();
+                sweepRefreshTokens();
+            }
+        }, tokenInterval, Math.max(1, tokenInterval), TimeUnit.SECONDS);
+        //
+        _LOG.info("Expired token sweeper started, batch size: " + __batchSize + ", max batches: " + __maxBatches + ".");
+    }
+
+    public void destroy() {
+        if (__sweepExecutor != null) {
+            __sweepExecutor.shutdownNow();
+            __sweepExecutor = null;
+        }
+    }
+
+    /**
+     * @return 执行一轮授权码清理并返回清理数量
+     */
+    public int sweepAuthCodes() {
+        return __sweep(AUTH_CODES, System.currentTimeMillis() - AUTH_CODE_EXPIRE_IN);
+    }
+
+    /**
+     * @return 执行一轮访问凭证清理并返回清理数量
+     */
+    public int sweepAccessTokens() {
+        return __sweep(ACCESS_TOKENS, System.currentTimeMillis());
+    }
+
+    /**
+     * @return 执行一轮刷新凭证清理并返回清理数量
+     */
+    public int sweepRefreshTokens() {
+        return __sweep(REFRESH_TOKENS, System.currentTimeMillis());
+    }
+
+    private int __purge(String kind, long cutoff) throws Exception {
+        if (AUTH_CODES.equals(kind)) {
+            return __storage.purgeExpiredAuthCodes(cutoff, __batchSize);
+        } else if (ACCESS_TOKENS.equals(kind)) {
+            return __storage.purgeExpiredAccessTokens(cutoff, __batchSize);
+        }
+        return __storage.purgeExpiredRefreshTokens(cutoff, __batchSize);
+    }
+
+    private int __sweep(String kind, long cutoff) {
+        Stat _stat = __stats.get(kind);
+        long _startTime = System.currentTimeMillis();
+        int _total = 0;
+        try {
+            for (int _batch = 0; _batch < __maxBatches; _batch++) {
+                if (_batch > 0 && __batchPause > 0) {
+                    Thread.sleep(__batchPause);
+                }
+                int _count = __purge(kind, cutoff);
+                _stat.batches.incrementAndGet();
+                _total += _count;
+                if (_count < __batchSize) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            _stat.failures.incrementAndGet();
+            _LOG.warn("Purge expired " + kind + " failed.", e);
+        } finally {
+            _stat.passes.incrementAndGet();
+            _stat.purged.addAndGet(_total);
+            _stat.lastPassTime.set(_startTime);
+            _stat.lastPassDuration.set(System.currentTimeMillis() - _startTime);
+        }
+        if (_total > 0 && _LOG.isDebugEnabled()) {
+            _LOG.debug("Purged " + _total + " expired " + kind + ".");
+        }
+        return _total;
+    }
+
+    /**
+     * @return 返回各类数据清理统计快照(auth_codes, access_tokens, refresh_tokens),
+     * 值为{清理轮次, 批次总数, 清理总数, 失败次数, 最近一轮开始时间, 最近一轮耗时(毫秒)}
+     */
+    public Map<String, long[]> snapshot() {
+        Map<String, long[]> _result = new LinkedHashMap<String, long[]>(__stats.size());
+        for (Map.Entry<String, Stat> _entry : __stats.entrySet()) {
+            Stat _stat = _entry.getValue();
+            _result.put(_entry.getKey(), new long[]{_stat.passes.get(), _stat.batches.get(), _stat.purged.get(),
+                    _stat.failures.get(), _stat.lastPassTime.get(), _stat.lastPassDuration.get()});
+        }
+        return Collections.unmodifiableMap(_result);
+    }
+
+    private static class Stat {
+
+        final AtomicLong passes = new AtomicLong();
+
+        final AtomicLong batches = new AtomicLong();
+
+        final AtomicLong purged = new AtomicLong();
+
+        final AtomicLong failures = new AtomicLong();
+
+        final AtomicLong lastPassTime = new AtomicLong();
+
+        final AtomicLong lastPassDuration = new AtomicLong();
+    }
+}
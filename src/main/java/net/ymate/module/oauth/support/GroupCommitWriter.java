@@ -0,0 +1,355 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.support;
+
+import net.ymate.module.oauth.IOAuthBatchStorageAdapter;
+import net.ymate.module.oauth.IOAuthStorageAdapter;
+import net.ymate.module.oauth.OAuthCode;
+import net.ymate.module.oauth.OAuthSnsToken;
+import net.ymate.module.oauth.OAuthTokenParams;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 令牌写入组提交器, 将多个请求线程并发提交的令牌写操作合并为一次批量存储,
+ * 每批等待时间不超过设定的最大延迟, 提交线程阻塞至所在批次写入完成;
+ * 写操作按提交顺序执行, 调用方可在持有锁时提交(submit)并在释放锁后等待(await), 以免等待批次期间阻塞其它线程
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/05/24 下午3:40
+ * @version 1.0
+ */
+public class GroupCommitWriter {
+
+    private static final Log _LOG = LogFactory.getLog(GroupCommitWriter.class);
+
+    private final IOAuthStorageAdapter __adapter;
+
+    private final int __maxBatchSize;
+
+    private final long __maxLatencyNanos;
+
+    private final TokenMissCache __tokenMisses;
+
+    private final boolean __batchSupported;
+
+    private final BlockingQueue<Pending<?>> __queue = new LinkedBlockingQueue<Pending<?>>();
+
+    private volatile boolean __running;
+
+    private Thread __flusher;
+
+    /**
+     * @param adapter          令牌存储适配器
+     * @param maxBatchSize     每批最大写入条目数量
+     * @param maxLatencyMillis 每批最大等待时间, 单位(毫秒)
+     */
+    public GroupCommitWriter(IOAuthStorageAdapter adapter, int maxBatchSize, long maxLatencyMillis) {
+        this(adapter, maxBatchSize, maxLatencyMillis, null, adapter instanceof IOAuthBatchStorageAdapter);
+    }
+
+    /**
+     * @param adapter          令牌存储适配器
+     * @param maxBatchSize     每批最大写入条目数量
+     * @param maxLatencyMillis 每批最大等待时间, 单位(毫秒)
+     * @param tokenMisses      用户访问凭证无效记录缓存, 写入成功后、唤醒提交线程前清除新旧凭证的无效记录, 可以为null
+     * @param batchSupported   存储适配器(或被其装饰的适配器)是否真正支持批量写入; 不支持时逐条写入,
+     *                         每个写操作分别得到自己的结果或异常, 仅批量写入调用失败时整批失败
+     */
+    public GroupCommitWriter(IOAuthStorageAdapter adapter, int maxBatchSize, long maxLatencyMillis, TokenMissCache tokenMisses, boolean batchSupported) {
+        if (adapter == null) {
+            throw new NullPointerException("adapter");
+        }
+        __adapter = adapter;
+        __maxBatchSize = Math.max(1, maxBatchSize);
+        __maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxLatencyMillis));
+        __tokenMisses = tokenMisses;
+        __batchSupported = batchSupported;
+    }
+
+    public synchronized void start() {
+        if (!__running) {
+            __running = true;
+            __flusher = new Thread(new Runnable() {
+                public void run() {
+                    __doRun();
+                }
+            }, "oauth-token-group-commit");
+            __flusher.setDaemon(true);
+            __flusher.start();
+        }
+    }
+
+    public synchronized void stop() {
+        if (__running) {
+            __running = false;
+            __flusher.interrupt();
+            try {
+                __flusher.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            __flusher = null;
+            // 写入停止期间残留的请求
+            List<Pending<?>> _remains = new ArrayList<Pending<?>>();
+            __queue.drainTo(_remains);
+            if (!_remains.isEmpty()) {
+                __flush(_remains);
+            }
+        }
+    }
+
+    public boolean isRunning() {
+        return __running;
+    }
+
+    public OAuthCode saveOrUpdateAuthCode(OAuthCode authCode) throws Exception {
+        return await(submitAuthCode(authCode));
+    }
+
+    public OAuthSnsToken saveOrUpdateAccessToken(OAuthTokenParams token) throws Exception {
+        return await(submitAccessToken(token));
+    }
+
+    /**
+     * @param authCode 授权码
+     * @return 将授权码写操作加入队列并立即返回, 写入器未运行时直接写入
+     */
+    public Pending<OAuthCode> submitAuthCode(OAuthCode authCode) {
+        Pending<OAuthCode> _pending = new Pending<OAuthCode>(authCode, null);
+        __submit(_pending);
+        return _pending;
+    }
+
+    /**
+     * @param token 令牌写入参数
+     * @return 将令牌写操作加入队列并立即返回, 写入器未运行时直接写入
+     */
+    public Pending<OAuthSnsToken> submitAccessToken(OAuthTokenParams token) {
+        Pending<OAuthSnsToken> _pending = new Pending<OAuthSnsToken>(null, token);
+        __submit(_pending);
+        return _pending;
+    }
+
+    private void __submit(Pending<?> pending) {
+        if (__running) {
+            __queue.add(pending);
+        } else {
+            __flush(Collections.<Pending<?>>singletonList(pending));
+        }
+    }
+
+    /**
+     * 等待写操作完成; 若等待期间被中断: 尚未被写入线程取出的写操作将从队列中移除(不会写入)并抛出InterruptedException,
+     * 已在写入中的操作则继续等待其完成并返回结果, 同时保留线程中断状态
+     *
+     * @param pending 已提交的写操作
+     * @param <T>     结果类型
+     * @return 返回写入结果
+     * @throws Exception 写入过程中产生的异常
+     */
+    public <T> T await(Pending<T> pending) throws Exception {
+        boolean _interrupted = false;
+        try {
+            while (true) {
+                try {
+                    if (pending.await(100)) {
+                        break;
+                    }
+                } catch (InterruptedException e) {
+                    if (__queue.remove(pending)) {
+                        throw e;
+                    }
+                    _interrupted = true;
+                }
+                // 提交期间写入器已停止, 由提交线程自行完成写入
+                if (!__running && __queue.remove(pending)) {
+                    __flush(Collections.<Pending<?>>singletonList(pending));
+                }
+            }
+        } finally {
+            if (_interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return pending.get();
+    }
+
+    private void __doRun() {
+        List<Pending<?>> _batch = new ArrayList<Pending<?>>(__maxBatchSize);
+        while (__running) {
+            try {
+                Pending<?> _first = __queue.take();
+                _batch.add(_first);
+                long _deadline = System.nanoTime() + __maxLatencyNanos;
+                while (_batch.size() < __maxBatchSize) {
+                    long _wait = _deadline - System.nanoTime();
+                    Pending<?> _next = _wait > 0 ? __queue.poll(_wait, TimeUnit.NANOSECONDS) : __queue.poll();
+                    if (_next == null) {
+                        break;
+                    }
+                    _batch.add(_next);
+                }
+            } catch (InterruptedException e) {
+                if (__running) {
+                    continue;
+                }
+            }
+            if (!_batch.isEmpty()) {
+                __flush(_batch);
+                _batch.clear();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void __flush(List<Pending<?>> batch) {
+        List<Pending<OAuthCode>> _codePendings = new ArrayList<Pending<OAuthCode>>();
+        List<OAuthCode> _codes = new ArrayList<OAuthCode>();
+        List<Pending<OAuthSnsToken>> _tokenPendings = new ArrayList<Pending<OAuthSnsToken>>();
+        List<OAuthTokenParams> _tokens = new ArrayList<OAuthTokenParams>();
+        for (Pending<?> _pending : batch) {
+            if (_pending.authCode != null) {
+                _codePendings.add((Pending<OAuthCode>) _pending);
+                _codes.add(_pending.authCode);
+            } else {
+                _tokenPendings.add((Pending<OAuthSnsToken>) _pending);
+                _tokens.add(_pending.token);
+            }
+        }
+        if (!_codes.isEmpty()) {
+            if (__batchSupported) {
+                try {
+                    __complete(_codePendings, StorageBatchHelper.saveOrUpdateAuthCodes(__adapter, _codes), null, "auth code");
+                } catch (Throwable e) {
+                    __complete(_codePendings, null, e, "auth code");
+                }
+            } else {
+                // 逐条写入时已写入的条目不受后续失败影响, 各自返回结果或异常
+                for (Pending<OAuthCode> _pending : _codePendings) {
+                    try {
+                        _pending.complete(__adapter.saveOrUpdateAuthCode(_pending.authCode.getCode(), _pending.authCode.getRedirectUri(), _pending.authCode.getClientId(), _pending.authCode.getUid(), _pending.authCode.getScope()));
+                    } catch (Throwable e) {
+                        _pending.fail(e);
+                    }
+                }
+            }
+        }
+        if (!_tokens.isEmpty()) {
+            if (__batchSupported) {
+                try {
+                    List<OAuthSnsToken> _results = StorageBatchHelper.saveOrUpdateAccessTokens(__adapter, _tokens);
+                    if (__tokenMisses != null && _results != null) {
+                        for (OAuthSnsToken _token : _results) {
+                            __tokenMisses.clear(_token);
+                        }
+                    }
+                    __complete(_tokenPendings, _results, null, "token");
+                } catch (Throwable e) {
+                    __complete(_tokenPendings, null, e, "token");
+                }
+            } else {
+                for (Pending<OAuthSnsToken> _pending : _tokenPendings) {
+                    OAuthTokenParams _token = _pending.token;
+                    try {
+                        OAuthSnsToken _result = StorageBatchHelper.saveOrUpdateAccessToken(__adapter, _token.getClientId(), _token.getUid(), _token.getScope(), _token.getAccessToken(), _token.getRefreshToken(), _token.getExpiresIn(), _token.getRefreshExpireTime(), _token.isRefresh());
+                        if (__tokenMisses != null) {
+                            __tokenMisses.clear(_result);
+                        }
+                        _pending.complete(_result);
+                    } catch (Throwable e) {
+                        _pending.fail(e);
+                    }
+                }
+            }
+        }
+    }
+
+    private static <T> void __complete(List<Pending<T>> pendings, List<T> results, Throwable error, String kind) {
+        if (error != null) {
+            _LOG.warn("Group commit of " + pendings.size() + " " + kind + " writes failed.", error);
+        } else if (results == null || results.size() != pendings.size()) {
+            error = new IllegalStateException("Batch storage returned " + (results == null ? 0 : results.size()) + " results for " + pendings.size() + " writes.");
+        }
+        for (int _idx = 0; _idx < pendings.size(); _idx++) {
+            if (error != null) {
+                pendings.get(_idx).fail(error);
+            } else {
+                pendings.get(_idx).complete(results.get(_idx));
+            }
+        }
+    }
+
+    /**
+     * 已提交的写操作
+     *
+     * @param <T> 结果类型
+     */
+    public static class Pending<T> {
+
+        final OAuthCode authCode;
+
+        final OAuthTokenParams token;
+
+        private final CountDownLatch __latch = new CountDownLatch(1);
+
+        private volatile T __result;
+
+        private volatile Throwable __error;
+
+        Pending(OAuthCode authCode, OAuthTokenParams token) {
+            this.authCode = authCode;
+            this.token = token;
+        }
+
+        void complete(T result) {
+            __result = result;
+            __latch.countDown();
+        }
+
+        void fail(Throwable error) {
+            __error = error;
+            __latch.countDown();
+        }
+
+        boolean await(long timeoutMillis) throws InterruptedException {
+            return __latch.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * @return 返回写操作是否已完成
+         */
+        public boolean isDone() {
+            return __latch.getCount() == 0;
+        }
+
+        T get() throws Exception {
+            if (__error instanceof Exception) {
+                throw (Exception) __error;
+            } else if (__error != null) {
+                throw new RuntimeException(__error);
+            }
+            return __result;
+        }
+    }
+}
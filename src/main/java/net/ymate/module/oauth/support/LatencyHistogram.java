@@ -0,0 +1,125 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.support;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 无锁对数线性直方图(与HdrHistogram相同的分桶思路): 每个2的幂区间再等分为16个子桶, 相对误差不超过1/16,
+ * 记录操作仅包含一次数组原子累加, 适合在请求热路径中常开
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/06/06 上午10:15
+ * @version 1.0
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private static final int SUB_BUCKET_MASK = SUB_BUCKET_COUNT - 1;
+
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray __counts = new AtomicLongArray(BUCKET_COUNT);
+
+    private final AtomicLong __totalCount = new AtomicLong();
+
+    private final AtomicLong __totalValue = new AtomicLong();
+
+    private final AtomicLong __maxValue = new AtomicLong();
+
+    private static int __indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int _exponent = 63 - Long.numberOfLeadingZeros(value);
+        int _subBucket = (int) (value >>> (_exponent - SUB_BUCKET_BITS)) & SUB_BUCKET_MASK;
+        return ((_exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + _subBucket;
+    }
+
+    private static long __highestValueOf(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int _shift = (index >> SUB_BUCKET_BITS) - 1;
+        long _lowest = (long) (SUB_BUCKET_COUNT + (index & SUB_BUCKET_MASK)) << _shift;
+        return _lowest + (1L << _shift) - 1;
+    }
+
+    /**
+     * @param value 记录值(如: 耗时纳秒数), 小于0按0计
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        __counts.incrementAndGet(__indexOf(value));
+        __totalCount.incrementAndGet();
+        __totalValue.addAndGet(value);
+        long _max = __maxValue.get();
+        while (value > _max && !__maxValue.compareAndSet(_max, value)) {
+            _max = __maxValue.get();
+        }
+    }
+
+    public long getCount() {
+        return __totalCount.get();
+    }
+
+    public long getTotal() {
+        return __totalValue.get();
+    }
+
+    public long getMax() {
+        return __maxValue.get();
+    }
+
+    public double getMean() {
+        long _count = __totalCount.get();
+        return _count == 0 ? 0 : (double) __totalValue.get() / _count;
+    }
+
+    /**
+     * @param percentile 百分位(0 - 100)
+     * @return 返回指定百分位对应的值(所在子桶上界, 不超过最大值)
+     */
+    public long getValueAtPercentile(double percentile) {
+        long _count = __totalCount.get();
+        if (_count == 0) {
+            return 0;
+        }
+        long _target = Math.max(1, (long) Math.ceil(Math.min(100.0, Math.max(0.0, percentile)) / 100.0 * _count));
+        long _accumulated = 0;
+        for (int _idx = 0; _idx < BUCKET_COUNT; _idx++) {
+            _accumulated += __counts.get(_idx);
+            if (_accumulated >= _target) {
+                return Math.min(__highestValueOf(_idx), __maxValue.get());
+            }
+        }
+        return __maxValue.get();
+    }
+
+    public void reset() {
+        for (int _idx = 0; _idx < BUCKET_COUNT; _idx++) {
+            __counts.set(_idx, 0);
+        }
+        __totalCount.set(0);
+        __totalValue.set(0);
+        __maxValue.set(0);
+    }
+}
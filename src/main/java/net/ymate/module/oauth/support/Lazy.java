@@ -0,0 +1,60 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.support;
+
+/**
+ * 延迟加载值, 首次访问时加载并缓存结果(包括null); 非线程安全, 仅用于单个请求范围内
+ *
+ * @param <T> 值类型
+ * @author 刘镇 (suninformation@163.com) on 2017/05/26 上午10:20
+ * @version 1.0
+ */
+public abstract class Lazy<T> {
+
+    private boolean __loaded;
+
+    private T __value;
+
+    /**
+     * @return 加载并返回值
+     * @throws Exception 可能产生的任何异常
+     */
+    protected abstract T load() throws Exception;
+
+    /**
+     * @return 返回值是否已加载
+     */
+    public boolean isLoaded() {
+        return __loaded;
+    }
+
+    /**
+     * @return 返回已加载的值, 首次调用时执行加载, 加载过程中产生的受检异常将被包装为运行时异常
+     */
+    public T get() {
+        if (!__loaded) {
+            try {
+                __value = load();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+            __loaded = true;
+        }
+        return __value;
+    }
+}
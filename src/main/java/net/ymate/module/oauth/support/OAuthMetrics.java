@@ -0,0 +1,182 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.support;
+
+import net.ymate.module.oauth.IOAuthMetricsRegistry;
+import org.apache.oltu.oauth2.common.message.types.GrantType;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 模块度量指标门面, 按端点及授权类型记录请求耗时, 按端点及错误代码统计错误响应;
+ * 计时器及计数器首次使用后按标签值缓存, 热路径仅包含一次线程变量读写及两次哈希查找, 未配置注册表时所有方法直接返回
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/06/06 上午11:40
+ * @version 1.0
+ */
+public class OAuthMetrics {
+
+    /**
+     * 缺失标签值时使用的占位值
+     */
+    public static final String NONE = "none";
+
+    /**
+     * 无法识别的授权类型使用的标签值, 避免客户端任意取值导致标签数量无限增长
+     */
+    public static final String OTHER = "other";
+
+    private static final ThreadLocal<long[]> __START_TIME = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[1];
+        }
+    };
+
+    private final IOAuthMetricsRegistry __registry;
+
+    private final ConcurrentMap<String, ConcurrentMap<String, IOAuthMetricsRegistry.ITimer>> __endpointTimers = new ConcurrentHashMap<String, ConcurrentMap<String, IOAuthMetricsRegistry.ITimer>>();
+
+    private final ConcurrentMap<String, ConcurrentMap<String, IOAuthMetricsRegistry.ICounter>> __errorCounters = new ConcurrentHashMap<String, ConcurrentMap<String, IOAuthMetricsRegistry.ICounter>>();
+
+    /**
+     * @param registry 度量指标注册表, 为null表示不启用
+     */
+    public OAuthMetrics(IOAuthMetricsRegistry registry) {
+        __registry = registry;
+    }
+
+    public boolean isEnabled() {
+        return __registry != null;
+    }
+
+    /**
+     * @return 返回度量指标注册表, 未启用时返回null
+     */
+    public IOAuthMetricsRegistry getRegistry() {
+        return __registry;
+    }
+
+    private static String __tagValue(String value) {
+        return value == null || value.length() == 0 ? NONE : value;
+    }
+
+    private static String __grantTypeTag(String grantType) {
+        if (grantType == null || grantType.length() == 0) {
+            return NONE;
+        }
+        for (GrantType _type : GrantType.values()) {
+            if (_type.toString().equals(grantType)) {
+                return grantType;
+            }
+        }
+        return OTHER;
+    }
+
+    private static <T> ConcurrentMap<String, T> __group(ConcurrentMap<String, ConcurrentMap<String, T>> groups, String key) {
+        ConcurrentMap<String, T> _group = groups.get(key);
+        if (_group == null) {
+            ConcurrentMap<String, T> _newGroup = new ConcurrentHashMap<String, T>();
+            _group = groups.putIfAbsent(key, _newGroup);
+            if (_group == null) {
+                _group = _newGroup;
+            }
+        }
+        return _group;
+    }
+
+    /**
+     * 标记当前线程请求开始
+     */
+    public void begin() {
+        if (__registry != null) {
+            __START_TIME.get()[0] = System.nanoTime();
+        }
+    }
+
+    /**
+     * 结束当前线程请求计时并计入指定端点, 未调用{@link #begin()}或已结束时忽略
+     *
+     * @param endpoint  端点名称
+     * @param grantType 授权类型, 为空时记为none, 无法识别时记为other
+     */
+    public void end(String endpoint, String grantType) {
+        if (__registry == null) {
+            return;
+        }
+        long[] _start = __START_TIME.get();
+        if (_start[0] == 0) {
+            return;
+        }
+        long _elapsed = System.nanoTime() - _start[0];
+        _start[0] = 0;
+        //
+        String _endpoint = __tagValue(endpoint);
+        String _grantType = __grantTypeTag(grantType);
+        ConcurrentMap<String, IOAuthMetricsRegistry.ITimer> _timers = __group(__endpointTimers, _endpoint);
+        IOAuthMetricsRegistry.ITimer _timer = _timers.get(_grantType);
+        if (_timer == null) {
+            _timer = __registry.timer(IOAuthMetricsRegistry.ENDPOINT_TIMER, "endpoint", _endpoint, "grant_type", _grantType);
+            _timers.put(_grantType, _timer);
+        }
+        _timer.record(_elapsed);
+    }
+
+    /**
+     * 统计错误响应
+     *
+     * @param endpoint 端点名称
+     * @param error    错误代码(如: OAuthError.TokenResponse.INVALID_CLIENT)
+     */
+    public void error(String endpoint, String error) {
+        if (__registry == null) {
+            return;
+        }
+        String _endpoint = __tagValue(endpoint);
+        String _error = __tagValue(error);
+        ConcurrentMap<String, IOAuthMetricsRegistry.ICounter> _counters = __group(__errorCounters, _endpoint);
+        IOAuthMetricsRegistry.ICounter _counter = _counters.get(_error);
+        if (_counter == null) {
+            _counter = __registry.counter(IOAuthMetricsRegistry.ERROR_COUNTER, "endpoint", _endpoint, "error", _error);
+            _counters.put(_error, _counter);
+        }
+        _counter.increment();
+    }
+
+    /**
+     * 统计请求在拦截器中被拒绝的错误代码并结束计时(此类请求不会进入控制器方法及后置拦截器)
+     *
+     * @param endpoint 端点名称
+     * @param error    错误代码
+     */
+    public void reject(String endpoint, String error) {
+        error(endpoint, error);
+        end(endpoint, null);
+    }
+
+    /**
+     * @param adapter 适配器名称(如: storage, userinfo)
+     * @param method  方法名称
+     * @return 返回适配器方法调用计时器, 供适配器装饰器初始化时获取并持有, 未启用时返回null
+     */
+    public IOAuthMetricsRegistry.ITimer adapterTimer(String adapter, String method) {
+        if (__registry == null) {
+            return null;
+        }
+        return __registry.timer(IOAuthMetricsRegistry.ADAPTER_TIMER, "adapter", adapter, "method", method);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.support;
+
+import net.ymate.module.oauth.IOAuth;
+import net.ymate.platform.webmvc.view.IView;
+import net.ymate.platform.webmvc.view.View;
+import org.apache.oltu.oauth2.as.response.OAuthASResponse;
+import org.apache.oltu.oauth2.common.error.OAuthError;
+import org.apache.oltu.oauth2.common.exception.OAuthSystemException;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+
+/**
+ * 预先序列化的固定响应报文(状态码及JSON字节内容), 用于高频拒绝场景下直接写入响应输出流, 避免重复构建及序列化
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/05/28 上午10:15
+ * @version 1.0
+ */
+public final class PreparedResponse {
+
+    public static final String CONTENT_TYPE_JSON = "application/json;charset=UTF-8";
+
+    public static final PreparedResponse INVALID_TOKEN = error(HttpServletResponse.SC_UNAUTHORIZED, OAuthError.ResourceResponse.INVALID_TOKEN);
+
+    public static final PreparedResponse EXPIRED_TOKEN = error(HttpServletResponse.SC_UNAUTHORIZED, OAuthError.ResourceResponse.EXPIRED_TOKEN);
+
+    public static final PreparedResponse INSUFFICIENT_SCOPE = error(HttpServletResponse.SC_UNAUTHORIZED, OAuthError.ResourceResponse.INSUFFICIENT_SCOPE);
+
+    public static final PreparedResponse INVALID_USER = error(HttpServletResponse.SC_UNAUTHORIZED, IOAuth.Const.INVALID_USER);
+
+    private final int __status;
+
+    private final byte[] __body;
+
+    private final String __error;
+
+    /**
+     * @param status 响应状态码
+     * @param body   响应报文内容
+     */
+    public PreparedResponse(int status, String body) {
+        this(status, body, null);
+    }
+
+    /**
+     * @param status 响应状态码
+     * @param body   响应报文内容
+     * @param error  错误代码
+     */
+    public PreparedResponse(int status, String body, String error) {
+        __status = status;
+        __error = error;
+        try {
+            __body = body.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param status 响应状态码
+     * @param error  错误代码
+     * @return 返回与OAuthASResponse.errorResponse(status).setError(error).buildJSONMessage()内容一致的预序列化响应
+     */
+    public static PreparedResponse error(int status, String error) {
+        try {
+            return new PreparedResponse(status, OAuthASResponse.errorResponse(status).setError(error).buildJSONMessage().getBody(), error);
+        } catch (OAuthSystemException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public int getStatus() {
+        return __status;
+    }
+
+    /**
+     * @return 返回错误代码, 非错误响应时返回null
+     */
+    public String getError() {
+        return __error;
+    }
+
+    /**
+     * @return 返回响应报文字节内容长度
+     */
+    public int getContentLength() {
+        return __body.length;
+    }
+
+    /**
+     * 将状态码及报文内容直接写入响应输出流
+     *
+     * @param response HttpServletResponse对象
+     * @return 返回空视图, 供拦截器或控制器方法直接返回
+     * @throws IOException 可能产生的I/O异常
+     */
+    public IView write(HttpServletResponse response) throws IOException {
+        response.setStatus(__status);
+        response.setContentType(CONTENT_TYPE_JSON);
+        response.setContentLength(__body.length);
+        ServletOutputStream _output = response.getOutputStream();
+        _output.write(__body);
+        _output.flush();
+        return View.nullView();
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.support;
+
+import net.ymate.module.oauth.OAuthClientUser;
+import net.ymate.platform.core.util.DateTimeUtils;
+import org.apache.commons.lang.StringUtils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 刷新凭证有效期策略, 支持按应用配置规则; 刷新凭证的到期时间在令牌写入时预先计算并随令牌存储,
+ * 过期判断仅需与当前时间比较一次. 规则格式:
+ * <ul>
+ * <li>sliding:7,30,90 - 滑动有效期, 自最后一次写入起按已刷新次数依次取对应天数, 超出部分取最后一项;</li>
+ * <li>absolute:30 - 绝对有效期, 自用户授权(非刷新方式签发令牌)起计算, 刷新时不延长;</li>
+ * </ul>
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/06/02 上午10:30
+ * @version 1.0
+ */
+public class RefreshPolicy {
+
+    /**
+     * 默认规则: 首次签发7天, 第一次刷新后30天, 之后90天
+     */
+    public static final String DEFAULT_RULE = "sliding:7,30,90";
+
+    private final Rule __defaultRule;
+
+    private final Map<String, Rule> __clientRules;
+
+    /**
+     * @param defaultRule 默认规则
+     * @param clientRules 应用规则映射, 键为clientId
+     */
+    public RefreshPolicy(String defaultRule, Map<String, String> clientRules) {
+        __defaultRule = Rule.parse(StringUtils.defaultIfBlank(defaultRule, DEFAULT_RULE));
+        Map<String, Rule> _rules = new HashMap<String, Rule>();
+        if (clientRules != null) {
+            for (Map.Entry<String, String> _entry : clientRules.entrySet()) {
+                _rules.put(_entry.getKey(), Rule.parse(_entry.getValue()));
+            }
+        }
+        __clientRules = Collections.unmodifiableMap(_rules);
+    }
+
+    /**
+     * @param clientId 应用唯一标识
+     * @return 返回应用适用的规则, 未单独配置时返回默认规则
+     */
+    public Rule getRule(String clientId) {
+        Rule _rule = __clientRules.get(clientId);
+        return _rule != null ? _rule : __defaultRule;
+    }
+
+    /**
+     * 计算即将写入的刷新凭证的到期时间
+     *
+     * @param clientId 应用唯一标识
+     * @param origin   当前用户令牌记录(非刷新方式签发时可为null)
+     * @param refresh  是否为刷新方式签发
+     * @param now      当前时间(毫秒)
+     * @return 返回到期时间(毫秒)
+     */
+    public long expireTime(String clientId, OAuthClientUser origin, boolean refresh, long now) {
+        Rule _rule = getRule(clientId);
+        if (!refresh || origin == null) {
+            return now + _rule.window(0);
+        }
+        if (_rule.sliding) {
+            return now + _rule.window(__intValue(origin.getRefreshCount()) + 1);
+        }
+        return origin.getRefreshExpireTime() != null ? origin.getRefreshExpireTime() : now + _rule.window(0);
+    }
+
+    /**
+     * @param user 用户令牌记录
+     * @param now  当前时间(毫秒)
+     * @return 判断刷新凭证是否已过期, 未存储到期时间的历史记录按滑动方式根据最后修改时间计算
+     */
+    public boolean isExpired(OAuthClientUser user, long now) {
+        if (user.getRefreshExpireTime() != null) {
+            return now >= user.getRefreshExpireTime();
+        }
+        Long _lastModifyTime = user.getLastModifyTime();
+        return _lastModifyTime == null || now - _lastModifyTime >= getRule(user.getClientId()).window(__intValue(user.getRefreshCount()));
+    }
+
+    private static int __intValue(Integer value) {
+        return value == null ? 0 : value;
+    }
+
+    /**
+     * 刷新凭证有效期规则
+     */
+    public static class Rule {
+
+        private final boolean sliding;
+
+        private final long[] windows;
+
+        Rule(boolean sliding, long[] windows) {
+            this.sliding = sliding;
+            this.windows = windows;
+        }
+
+        /**
+         * @param rule 规则字符串, 如: sliding:7,30,90或absolute:30
+         * @return 返回解析后的规则
+         */
+        public static Rule parse(String rule) {
+            String[] _parts = StringUtils.split(StringUtils.trimToEmpty(rule), ":");
+            if (_parts.length != 2 || !StringUtils.equalsIgnoreCase(_parts[0], "sliding") && !StringUtils.equalsIgnoreCase(_parts[0], "absolute")) {
+                throw new IllegalArgumentException("Invalid refresh token policy rule: " + rule);
+            }
+            String[] _days = StringUtils.split(_parts[1], ",");
+            if (_days.length == 0) {
+                throw new IllegalArgumentException("Invalid refresh token policy rule: " + rule);
+            }
+            long[] _windows = new long[_days.length];
+            for (int _idx = 0; _idx < _days.length; _idx++) {
+                int _day = Integer.parseInt(StringUtils.trim(_days[_idx]));
+                if (_day <= 0) {
+                    throw new IllegalArgumentException("Invalid refresh token policy rule: " + rule);
+                }
+                _windows[_idx] = _day * DateTimeUtils.DAY;
+            }
+            return new Rule(StringUtils.equalsIgnoreCase(_parts[0], "sliding"), _windows);
+        }
+
+        public boolean isSliding() {
+            return sliding;
+        }
+
+        /**
+         * @param refreshCount 已刷新次数
+         * @return 返回对应的有效时长(毫秒)
+         */
+        public long window(int refreshCount) {
+            return windows[Math.max(0, Math.min(refreshCount, windows.length - 1))];
+        }
+    }
+}
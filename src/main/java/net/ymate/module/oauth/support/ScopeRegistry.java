@@ -0,0 +1,142 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.support;
+
+import net.ymate.module.oauth.IOAuth;
+import org.apache.commons.lang.StringUtils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 授权作用域注册表, 每个作用域(忽略大小写)对应一个固定的位索引, 作用域字符串(多个用空格或','分隔)编译为位掩码,
+ * 作用域检查仅需一次按位与运算; 默认注册snsapi_base及snsapi_userinfo, 可通过register方法扩展自定义作用域(最多63个);
+ * 位索引一经分配不再变化, 因此仅缓存全部由已注册作用域组成的掩码(不受后续注册影响, 也不会被客户端任意取值占满)
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/05/30 上午9:50
+ * @version 1.0
+ */
+public class ScopeRegistry {
+
+    /**
+     * 最多可注册的作用域数量
+     */
+    public static final int MAX_SCOPES = 63;
+
+    /**
+     * 作用域字符串中包含未注册作用域时设置的标志位
+     */
+    public static final long UNKNOWN = 1L << 63;
+
+    private static final int MAX_CACHED_MASKS = 1024;
+
+    private final ConcurrentMap<String, Integer> __indexes = new ConcurrentHashMap<String, Integer>();
+
+    private final ConcurrentMap<String, Long> __masks = new ConcurrentHashMap<String, Long>();
+
+    public ScopeRegistry() {
+        register(IOAuth.Scope.SNSAPI_BASE);
+        register(IOAuth.Scope.SNSAPI_USERINFO);
+    }
+
+    /**
+     * 注册作用域, 若已注册则直接返回其位索引
+     *
+     * @param scope 作用域名称
+     * @return 返回作用域位索引
+     */
+    public synchronized int register(String scope) {
+        String _name = StringUtils.lowerCase(StringUtils.trimToNull(scope));
+        if (_name == null || StringUtils.containsAny(_name, " ,")) {
+            throw new IllegalArgumentException("scope");
+        }
+        Integer _index = __indexes.get(_name);
+        if (_index == null) {
+            if (__indexes.size() >= MAX_SCOPES) {
+                throw new IllegalStateException("Too many scopes, at most " + MAX_SCOPES + " are supported.");
+            }
+            _index = __indexes.size();
+            __indexes.put(_name, _index);
+        }
+        return _index;
+    }
+
+    /**
+     * @param scopes 作用域字符串
+     * @return 返回编译后的位掩码, 包含未注册作用域时设置{@link #UNKNOWN}标志位, 空字符串返回0
+     */
+    public long mask(String scopes) {
+        if (scopes == null) {
+            return 0;
+        }
+        Long _mask = __masks.get(scopes);
+        if (_mask == null) {
+            _mask = __compile(scopes);
+            // 包含未注册作用域的掩码不缓存; 缓存已满时整体清空, 避免被合法作用域的大量排列组合长期占满
+            if ((_mask & UNKNOWN) == 0) {
+                if (__masks.size() >= MAX_CACHED_MASKS) {
+                    __masks.clear();
+                }
+                __masks.put(scopes, _mask);
+            }
+        }
+        return _mask;
+    }
+
+    private long __compile(String scopes) {
+        long _mask = 0;
+        for (String _scope : StringUtils.split(scopes, " ,")) {
+            Integer _index = __indexes.get(StringUtils.lowerCase(_scope));
+            _mask |= _index == null ? UNKNOWN : 1L << _index;
+        }
+        return _mask;
+    }
+
+    /**
+     * @param scopes 作用域字符串
+     * @return 若作用域字符串非空且仅包含已注册作用域则返回true
+     */
+    public boolean verified(String scopes) {
+        long _mask = mask(scopes);
+        return _mask != 0 && (_mask & UNKNOWN) == 0;
+    }
+
+    /**
+     * @param scopes 作用域字符串
+     * @return 若作用域字符串包含snsapi_base以外的任何作用域(如: snsapi_userinfo或自定义作用域, 含多作用域组合)则返回true, 此类授权需经用户确认
+     */
+    public boolean isConsentRequired(String scopes) {
+        return (mask(scopes) & ~mask(IOAuth.Scope.SNSAPI_BASE)) != 0;
+    }
+
+    /**
+     * @param granted  已授权作用域掩码
+     * @param required 要求的作用域掩码
+     * @return 若已授权作用域包含全部要求的作用域则返回true, 要求中包含未注册作用域时始终返回false
+     */
+    public static boolean contains(long granted, long required) {
+        return (required & ~(granted & ~UNKNOWN)) == 0;
+    }
+
+    /**
+     * @param granted  已授权作用域字符串
+     * @param required 要求的作用域字符串
+     * @return 若已授权作用域包含全部要求的作用域则返回true
+     */
+    public boolean contains(String granted, String required) {
+        return contains(mask(granted), mask(required));
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.support;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 相同键的并发调用合并执行: 同一时刻仅执行一次, 其余调用等待并共享其结果(或异常);
+ * 执行成功后的结果在宽限期内继续返回给迟到的相同调用
+ *
+ * @param <K> 键类型
+ * @param <V> 结果类型
+ * @author 刘镇 (suninformation@163.com) on 2017/06/03 下午3:10
+ * @version 1.0
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, Call<V>> __calls = new ConcurrentHashMap<K, Call<V>>();
+
+    private final TimedLruCache<K, V> __recent;
+
+    private final long __graceTime;
+
+    private final AtomicLong __sharedCount = new AtomicLong();
+
+    /**
+     * @param name      名称(用于宽限期结果缓存)
+     * @param maxSize   宽限期结果最大缓存数量
+     * @param graceTime 宽限期, 单位(毫秒), 小于等于0表示仅合并并发调用
+     */
+    public SingleFlight(String name, int maxSize, long graceTime) {
+        __graceTime = graceTime;
+        __recent = graceTime > 0 ? new TimedLruCache<K, V>(name, maxSize) : null;
+    }
+
+    /**
+     * @param key 键
+     * @return 判断指定键是否存在正在执行或处于宽限期内的调用结果
+     */
+    public boolean isShared(K key) {
+        return __calls.containsKey(key) || __recent != null && __recent.get(key) != null;
+    }
+
+    /**
+     * @param key  键
+     * @param task 执行任务
+     * @return 执行任务或等待正在执行的相同调用, 返回共享的执行结果
+     * @throws Exception 任务执行过程中产生的异常
+     */
+    public V execute(K key, Callable<V> task) throws Exception {
+        V _result = __recent(key);
+        if (_result != null) {
+            return _result;
+        }
+        Call<V> _call = new Call<V>();
+        Call<V> _origin = __calls.putIfAbsent(key, _call);
+        if (_origin != null) {
+            __sharedCount.incrementAndGet();
+            return _origin.await();
+        }
+        try {
+            // 前一次调用可能恰好在本次检查之后完成
+            _result = __recent(key);
+            if (_result == null) {
+                _result = task.call();
+                if (_result != null && __recent != null) {
+                    __recent.put(key, _result, System.currentTimeMillis() + __graceTime);
+                }
+            }
+            _call.result = _result;
+            return _result;
+        } catch (Exception e) {
+            _call.error = e;
+            throw e;
+        } finally {
+            __calls.remove(key, _call);
+            _call.latch.countDown();
+        }
+    }
+
+    private V __recent(K key) {
+        if (__recent != null) {
+            V _result = __recent.get(key);
+            if (_result != null) {
+                __sharedCount.incrementAndGet();
+                return _result;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return 返回共享他人执行结果(未实际执行任务)的调用次数
+     */
+    public long getSharedCount() {
+        return __sharedCount.get();
+    }
+
+    private static class Call<V> {
+
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        volatile V result;
+
+        volatile Exception error;
+
+        V await() throws Exception {
+            latch.await();
+            if (error != null) {
+                throw error;
+            }
+            return result;
+        }
+    }
+}
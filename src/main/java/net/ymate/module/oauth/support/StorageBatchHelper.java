@@ -0,0 +1,64 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.support;
+
+import net.ymate.module.oauth.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 令牌存储辅助类, 若存储适配器未实现{@link IOAuthBatchStorageAdapter}接口则逐条写入(遇到异常即停止, 此前的条目已写入且不会回滚,
+ * 需要逐条获得结果的调用方(如: 组提交写入器)应自行逐条写入);
+ * 若未实现{@link IOAuthRefreshExpireStorageAdapter}接口则不传递刷新凭证到期时间
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/05/24 下午3:05
+ * @version 1.0
+ */
+public final class StorageBatchHelper {
+
+    private StorageBatchHelper() {
+    }
+
+    public static List<OAuthCode> saveOrUpdateAuthCodes(IOAuthStorageAdapter adapter, List<OAuthCode> authCodes) throws Exception {
+        if (adapter instanceof IOAuthBatchStorageAdapter) {
+            return ((IOAuthBatchStorageAdapter) adapter).saveOrUpdateAuthCodes(authCodes);
+        }
+        List<OAuthCode> _results = new ArrayList<OAuthCode>(authCodes.size());
+        for (OAuthCode _code : authCodes) {
+            _results.add(adapter.saveOrUpdateAuthCode(_code.getCode(), _code.getRedirectUri(), _code.getClientId(), _code.getUid(), _code.getScope()));
+        }
+        return _results;
+    }
+
+    public static List<OAuthSnsToken> saveOrUpdateAccessTokens(IOAuthStorageAdapter adapter, List<OAuthTokenParams> tokens) throws Exception {
+        if (adapter instanceof IOAuthBatchStorageAdapter) {
+            return ((IOAuthBatchStorageAdapter) adapter).saveOrUpdateAccessTokens(tokens);
+        }
+        List<OAuthSnsToken> _results = new ArrayList<OAuthSnsToken>(tokens.size());
+        for (OAuthTokenParams _token : tokens) {
+            _results.add(saveOrUpdateAccessToken(adapter, _token.getClientId(), _token.getUid(), _token.getScope(), _token.getAccessToken(), _token.getRefreshToken(), _token.getExpiresIn(), _token.getRefreshExpireTime(), _token.isRefresh()));
+        }
+        return _results;
+    }
+
+    public static OAuthSnsToken saveOrUpdateAccessToken(IOAuthStorageAdapter adapter, String clientId, String uid, String scope, String accessToken, String refreshToken, int expiresIn, long refreshExpireTime, boolean refresh) throws Exception {
+        if (adapter instanceof IOAuthRefreshExpireStorageAdapter) {
+            return ((IOAuthRefreshExpireStorageAdapter) adapter).saveOrUpdateAccessToken(clientId, uid, scope, accessToken, refreshToken, expiresIn, refreshExpireTime, refresh);
+        }
+        return adapter.saveOrUpdateAccessToken(clientId, uid, scope, accessToken, refreshToken, expiresIn, refresh);
+    }
+}
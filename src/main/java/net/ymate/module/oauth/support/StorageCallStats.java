@@ -0,0 +1,119 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.support;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 存储适配器调用次数统计, 以线程为单位累计当前请求发起的存储调用次数, 请求结束时按端点汇总;
+ * 同时记录当前线程正在处理的端点, 供存储层日志(如: 慢调用)标明调用来源
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/05/26 上午10:45
+ * @version 1.0
+ */
+public class StorageCallStats {
+
+    private static final ThreadLocal<int[]> __COUNTER = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
+        }
+    };
+
+    private static final ThreadLocal<String> __ENDPOINT = new ThreadLocal<String>();
+
+    private final ConcurrentMap<String, Stat> __stats = new ConcurrentHashMap<String, Stat>();
+
+    /**
+     * 当前线程存储调用次数加1
+     */
+    public static void increment() {
+        __COUNTER.get()[0]++;
+    }
+
+    /**
+     * @return 清零并返回当前线程累计的存储调用次数
+     */
+    public static int reset() {
+        int[] _counter = __COUNTER.get();
+        int _count = _counter[0];
+        _counter[0] = 0;
+        return _count;
+    }
+
+    /**
+     * 绑定当前线程正在处理的端点, 直至{@link #record(String)}被调用
+     *
+     * @param endpoint 端点名称
+     */
+    public static void bindEndpoint(String endpoint) {
+        __ENDPOINT.set(endpoint);
+    }
+
+    /**
+     * @return 返回当前线程正在处理的端点, 非请求线程(如: 异步接口线程池、过期令牌清理线程)返回null
+     */
+    public static String currentEndpoint() {
+        return __ENDPOINT.get();
+    }
+
+    /**
+     * 将当前线程累计的存储调用次数计入指定端点并清零, 同时解除端点绑定
+     *
+     * @param endpoint 端点名称
+     */
+    public void record(String endpoint) {
+        int _count = reset();
+        __ENDPOINT.remove();
+        Stat _stat = __stats.get(endpoint);
+        if (_stat == null) {
+            Stat _newStat = new Stat();
+            _stat = __stats.putIfAbsent(endpoint, _newStat);
+            if (_stat == null) {
+                _stat = _newStat;
+            }
+        }
+        _stat.requests.incrementAndGet();
+        _stat.calls.addAndGet(_count);
+    }
+
+    /**
+     * @return 返回各端点统计快照, 值为{请求次数, 存储调用总次数}
+     */
+    public Map<String, long[]> snapshot() {
+        Map<String, long[]> _result = new HashMap<String, long[]>(__stats.size());
+        for (Map.Entry<String, Stat> _entry : __stats.entrySet()) {
+            _result.put(_entry.getKey(), new long[]{_entry.getValue().requests.get(), _entry.getValue().calls.get()});
+        }
+        return Collections.unmodifiableMap(_result);
+    }
+
+    public void clear() {
+        __stats.clear();
+    }
+
+    private static class Stat {
+
+        final AtomicLong requests = new AtomicLong();
+
+        final AtomicLong calls = new AtomicLong();
+    }
+}
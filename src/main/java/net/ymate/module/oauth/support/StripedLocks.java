@@ -0,0 +1,65 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.support;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 分段锁, 按(clientId, uid)散列到固定数量的锁上, 用于串行化同一用户的令牌读改写操作,
+ * 不同用户的写操作仅在散列冲突时竞争同一把锁; 读操作无需加锁
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/06/05 上午11:20
+ * @version 1.0
+ */
+public class StripedLocks {
+
+    private final Lock[] __locks;
+
+    private final int __mask;
+
+    /**
+     * @param stripes 分段数量(将调整为2的幂)
+     */
+    public StripedLocks(int stripes) {
+        int _count = 1;
+        while (_count < stripes && _count < (1 << 16)) {
+            _count <<= 1;
+        }
+        __locks = new Lock[_count];
+        for (int _idx = 0; _idx < _count; _idx++) {
+            __locks[_idx] = new ReentrantLock();
+        }
+        __mask = _count - 1;
+    }
+
+    /**
+     * @param clientId 应用唯一标识
+     * @param uid      用户主键
+     * @return 返回指定用户对应的锁
+     */
+    public Lock get(String clientId, String uid) {
+        int _hash = (clientId == null ? 0 : clientId.hashCode()) * 31 + (uid == null ? 0 : uid.hashCode());
+        _hash ^= _hash >>> 16;
+        _hash *= 0x85ebca6b;
+        _hash ^= _hash >>> 13;
+        return __locks[_hash & __mask];
+    }
+
+    public int getStripes() {
+        return __locks.length;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.support;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 带过期时间的分段LRU缓存, 各分段独立加锁, 总容量超出上限时按最近最少使用原则淘汰
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ * @author 刘镇 (suninformation@163.com) on 2017/05/20 上午10:12
+ * @version 1.0
+ */
+public class TimedLruCache<K, V> {
+
+    private static final int DEFAULT_SEGMENTS = 16;
+
+    private final String __name;
+
+    private final Segment<K, V>[] __segments;
+
+    private final int __segmentMask;
+
+    /**
+     * @param name    缓存名称
+     * @param maxSize 缓存最大条目数量
+     */
+    public TimedLruCache(String name, int maxSize) {
+        this(name, maxSize, DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * @param name     缓存名称
+     * @param maxSize  缓存最大条目数量
+     * @param segments 分段数量(将调整为2的幂)
+     */
+    @SuppressWarnings("unchecked")
+    public TimedLruCache(String name, int maxSize, int segments) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize");
+        }
+        int _count = 1;
+        while (_count < segments && _count < maxSize) {
+            _count <<= 1;
+        }
+        __name = name;
+        __segments = new Segment[_count];
+        __segmentMask = _count - 1;
+        int _segmentSize = Math.max(1, maxSize / _count);
+        for (int _idx = 0; _idx < _count; _idx++) {
+            __segments[_idx] = new Segment<K, V>(_segmentSize);
+        }
+    }
+
+    private Segment<K, V> __segment(Object key) {
+        int _hash = key.hashCode();
+        _hash ^= (_hash >>> 16);
+        return __segments[_hash & __segmentMask];
+    }
+
+    public String getName() {
+        return __name;
+    }
+
+    /**
+     * @param key 键
+     * @return 返回未过期的缓存值, 若不存在或已过期则返回null
+     */
+    public V get(K key) {
+        return key == null ? null : __segment(key).get(key, System.currentTimeMillis());
+    }
+
+    /**
+     * @param key      键
+     * @param value    值
+     * @param expireAt 过期时间点(毫秒), 若已过期则不缓存
+     */
+    public void put(K key, V value, long expireAt) {
+        if (key != null && value != null && expireAt > System.currentTimeMillis()) {
+            __segment(key).put(key, value, expireAt);
+        }
+    }
+
+    /**
+     * @param key 键
+     * @return 移除并返回缓存值
+     */
+    public V remove(K key) {
+        return key == null ? null : __segment(key).remove(key);
+    }
+
+    public int size() {
+        int _size = 0;
+        for (Segment<K, V> _segment : __segments) {
+            _size += _segment.size();
+        }
+        return _size;
+    }
+
+    public void clear() {
+        for (Segment<K, V> _segment : __segments) {
+            _segment.clear();
+        }
+    }
+
+    private static class CacheEntry<V> {
+
+        final V value;
+
+        final long expireAt;
+
+        CacheEntry(V value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+
+    private static class Segment<K, V> {
+
+        private final LinkedHashMap<K, CacheEntry<V>> __map;
+
+        Segment(final int maxSize) {
+            __map = new LinkedHashMap<K, CacheEntry<V>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+
+        synchronized V get(K key, long now) {
+            CacheEntry<V> _entry = __map.get(key);
+            if (_entry == null) {
+                return null;
+            }
+            if (_entry.expireAt <= now) {
+                __map.remove(key);
+                return null;
+            }
+            return _entry.value;
+        }
+
+        synchronized void put(K key, V value, long expireAt) {
+            __map.put(key, new CacheEntry<V>(value, expireAt));
+        }
+
+        synchronized V remove(K key) {
+            CacheEntry<V> _entry = __map.remove(key);
+            return _entry == null ? null : _entry.value;
+        }
+
+        synchronized int size() {
+            return __map.size();
+        }
+
+        synchronized void clear() {
+            __map.clear();
+        }
+    }
+}
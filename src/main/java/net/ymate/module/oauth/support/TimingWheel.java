@@ -0,0 +1,221 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.support;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分层时间轮过期索引, 共4层, 每层64个槽位, 按到期刻度所在层级散列存放, 时间推进时逐层级联下移;
+ * 登记、取消及到期均为均摊O(1)操作, 无需全量扫描; 超出最大跨度的条目暂存于最高层并在级联时重新定位.
+ * 同一键仅保留最后一次登记的到期时间, 由调用方在取出到期键后自行复核并清理对应数据
+ *
+ * @param <K> 键类型
+ * @author 刘镇 (suninformation@163.com) on 2017/06/01 下午2:10
+ * @version 1.0
+ */
+public class TimingWheel<K> {
+
+    private static final int WHEEL_BITS = 6;
+
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    private static final int LEVELS = 4;
+
+    private static final long MAX_TICKS = 1L << (WHEEL_BITS * LEVELS);
+
+    /**
+     * 已到期待取出的条目链表索引
+     */
+    private static final int EXPIRED = LEVELS * WHEEL_SIZE;
+
+    private final long __tickDuration;
+
+    private final Node<K>[] __heads;
+
+    private final Map<K, Node<K>> __nodes = new HashMap<K, Node<K>>();
+
+    private long __currentTick;
+
+    /**
+     * @param tickDuration 刻度时长, 单位(毫秒), 最大跨度为刻度时长 * 64^4
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickDuration) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration");
+        }
+        __tickDuration = tickDuration;
+        __heads = new Node[EXPIRED + 1];
+        __currentTick = System.currentTimeMillis() / tickDuration;
+    }
+
+    /**
+     * 登记或更新键的到期时间
+     *
+     * @param key      键
+     * @param expireAt 到期时间(毫秒)
+     */
+    public synchronized void schedule(K key, long expireAt) {
+        Node<K> _node = __nodes.get(key);
+        if (_node == null) {
+            _node = new Node<K>(key);
+            __nodes.put(key, _node);
+        } else {
+            __unlink(_node);
+        }
+        // 向上取整, 保证取出时到期时间不晚于当前时间
+        _node.expireTick = (expireAt + __tickDuration - 1) / __tickDuration;
+        __place(_node);
+    }
+
+    /**
+     * @param key 键
+     * @return 取消键的到期登记, 若键存在则返回true
+     */
+    public synchronized boolean cancel(K key) {
+        Node<K> _node = __nodes.remove(key);
+        if (_node != null) {
+            __unlink(_node);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 推进时间并取出已到期的键(取出后即不再登记)
+     *
+     * @param now   当前时间(毫秒), 早于已推进时间时不回退
+     * @param limit 最大取出数量
+     * @return 返回已到期的键集合
+     */
+    public synchronized List<K> poll(long now, int limit) {
+        __advance(now);
+        if (__heads[EXPIRED] == null || limit <= 0) {
+            return Collections.emptyList();
+        }
+        List<K> _keys = new ArrayList<K>(Math.min(limit, 64));
+        while (_keys.size() < limit && __heads[EXPIRED] != null) {
+            Node<K> _node = __heads[EXPIRED];
+            __unlink(_node);
+            __nodes.remove(_node.key);
+            _keys.add(_node.key);
+        }
+        return _keys;
+    }
+
+    public synchronized int size() {
+        return __nodes.size();
+    }
+
+    public synchronized void clear() {
+        __nodes.clear();
+        for (int _idx = 0; _idx < __heads.length; _idx++) {
+            __heads[_idx] = null;
+        }
+    }
+
+    private void __advance(long now) {
+        long _targetTick = now / __tickDuration;
+        while (__currentTick < _targetTick) {
+            __currentTick++;
+            for (int _level = 1; _level < LEVELS; _level++) {
+                int _shift = WHEEL_BITS * _level;
+                if ((__currentTick & ((1L << _shift) - 1)) != 0) {
+                    break;
+                }
+                __cascade(_level * WHEEL_SIZE + (int) ((__currentTick >>> _shift) & WHEEL_MASK));
+            }
+            __cascade((int) (__currentTick & WHEEL_MASK));
+        }
+    }
+
+    private void __cascade(int bucket) {
+        Node<K> _node = __heads[bucket];
+        __heads[bucket] = null;
+        while (_node != null) {
+            Node<K> _next = _node.next;
+            _node.prev = null;
+            _node.next = null;
+            __place(_node);
+            _node = _next;
+        }
+    }
+
+    private void __place(Node<K> node) {
+        long _delta = node.expireTick - __currentTick;
+        if (_delta <= 0) {
+            __link(node, EXPIRED);
+            return;
+        }
+        long _tick = node.expireTick;
+        if (_delta >= MAX_TICKS) {
+            // 超出最大跨度, 暂存于最高层最远槽位, 级联时按实际到期刻度重新定位
+            _delta = MAX_TICKS - 1;
+            _tick = __currentTick + _delta;
+        }
+        int _level = 0;
+        while (_delta >= 1L << (WHEEL_BITS * (_level + 1))) {
+            _level++;
+        }
+        __link(node, _level * WHEEL_SIZE + (int) ((_tick >>> (WHEEL_BITS * _level)) & WHEEL_MASK));
+    }
+
+    private void __link(Node<K> node, int bucket) {
+        node.bucket = bucket;
+        node.prev = null;
+        node.next = __heads[bucket];
+        if (node.next != null) {
+            node.next.prev = node;
+        }
+        __heads[bucket] = node;
+    }
+
+    private void __unlink(Node<K> node) {
+        if (node.prev != null) {
+            node.prev.next = node.next;
+        } else if (__heads[node.bucket] == node) {
+            __heads[node.bucket] = node.next;
+        }
+        if (node.next != null) {
+            node.next.prev = node.prev;
+        }
+        node.prev = null;
+        node.next = null;
+    }
+
+    private static class Node<K> {
+
+        final K key;
+
+        long expireTick;
+
+        int bucket;
+
+        Node<K> prev;
+
+        Node<K> next;
+
+        Node(K key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.support;
+
+import net.ymate.module.oauth.OAuthToken;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 无效令牌短期记录缓存, 用于在有效期内直接拒绝已确认不存在的访问凭证, 避免重复查询存储;
+ * 令牌每次写入存储(签发、刷新、组提交批量写入)后须调用{@link #clear(OAuthToken)}保持同步
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/05/21 下午2:40
+ * @version 1.0
+ */
+public class TokenMissCache {
+
+    private final TimedLruCache<String, Boolean> __cache;
+
+    private final long __timeout;
+
+    private final AtomicLong __hitCount = new AtomicLong();
+
+    /**
+     * @param name    缓存名称
+     * @param maxSize 缓存最大条目数量
+     * @param timeout 无效记录存活时间, 单位(秒)
+     */
+    public TokenMissCache(String name, int maxSize, int timeout) {
+        __cache = new TimedLruCache<String, Boolean>(name, maxSize);
+        __timeout = Math.max(1, timeout) * 1000L;
+    }
+
+    /**
+     * @param token 访问凭证
+     * @return 若该凭证近期已被确认无效则返回true
+     */
+    public boolean isMissed(String token) {
+        if (__cache.get(token) != null) {
+            __hitCount.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 记录无效访问凭证
+     *
+     * @param token 访问凭证
+     */
+    public void markMissed(String token) {
+        __cache.put(token, Boolean.TRUE, System.currentTimeMillis() + __timeout);
+    }
+
+    /**
+     * 清除访问凭证的无效记录(令牌签发时调用)
+     *
+     * @param token 访问凭证
+     */
+    public void clear(String token) {
+        __cache.remove(token);
+    }
+
+    /**
+     * 清除令牌当前及上一个访问凭证(宽限期内仍可使用)的无效记录(令牌写入存储后调用)
+     *
+     * @param token 已写入存储的令牌, 可以为null
+     */
+    public void clear(OAuthToken token) {
+        if (token != null) {
+            clear(token.getAccessToken());
+            clear(token.getLastAccessToken());
+        }
+    }
+
+    public void clear() {
+        __cache.clear();
+    }
+
+    /**
+     * @return 返回因命中无效记录而被直接拒绝的次数
+     */
+    public long getHitCount() {
+        return __hitCount.get();
+    }
+
+    public String getName() {
+        return __cache.getName();
+    }
+}
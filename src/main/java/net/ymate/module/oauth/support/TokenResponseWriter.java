@@ -0,0 +1,236 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.support;
+
+import net.ymate.module.oauth.IOAuth;
+import net.ymate.platform.webmvc.view.IView;
+import net.ymate.platform.webmvc.view.View;
+import org.apache.oltu.oauth2.common.OAuth;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 访问凭证响应报文写入器, 按固定结构(access_token, expires_in, refresh_token, scope, open_id)直接将JSON编码至线程私有缓冲区
+ * 并写入响应输出流, 不经过OAuthASResponse构建器的参数集合及通用序列化过程; 值为null或空字符串的属性将被忽略, 与OAuthASResponse输出一致
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/05/28 下午2:30
+ * @version 1.0
+ */
+public final class TokenResponseWriter {
+
+    /**
+     * 端点名称: 应用访问凭证(/oauth2/token)
+     */
+    public static final String ENDPOINT_TOKEN = "token";
+
+    /**
+     * 端点名称: 用户访问凭证(/oauth2/sns/access_token)
+     */
+    public static final String ENDPOINT_ACCESS_TOKEN = "access_token";
+
+    /**
+     * 端点名称: 刷新用户访问凭证(/oauth2/sns/refresh_token)
+     */
+    public static final String ENDPOINT_REFRESH_TOKEN = "refresh_token";
+
+    private static final byte[] __HEX = "0123456789abcdef".getBytes();
+
+    private static final ThreadLocal<Buffer> __BUFFER = new ThreadLocal<Buffer>() {
+        @Override
+        protected Buffer initialValue() {
+            return new Buffer();
+        }
+    };
+
+    private TokenResponseWriter() {
+    }
+
+    /**
+     * @param response     HttpServletResponse对象
+     * @param accessToken  访问凭证
+     * @param expiresIn    凭证有效时间, 单位(秒)
+     * @param refreshToken 刷新凭证, 可选
+     * @param scope        授权作用域, 可选
+     * @param openId       用户唯一标识, 可选
+     * @return 返回空视图, 供控制器方法直接返回
+     * @throws IOException 可能产生的I/O异常
+     */
+    public static IView write(HttpServletResponse response, String accessToken, long expiresIn, String refreshToken, String scope, String openId) throws IOException {
+        Buffer _buffer = __BUFFER.get();
+        encode(_buffer, accessToken, expiresIn, refreshToken, scope, openId);
+        //
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(PreparedResponse.CONTENT_TYPE_JSON);
+        response.setContentLength(_buffer.length);
+        ServletOutputStream _output = response.getOutputStream();
+        _output.write(_buffer.data, 0, _buffer.length);
+        _output.flush();
+        return View.nullView();
+    }
+
+    /**
+     * 将访问凭证响应报文直接写入输出流(不设置响应头), 与{@link #write(HttpServletResponse, String, long, String, String, String)}使用相同的编码路径
+     *
+     * @param output       输出流
+     * @param accessToken  访问凭证
+     * @param expiresIn    凭证有效时间, 单位(秒)
+     * @param refreshToken 刷新凭证, 可选
+     * @param scope        授权作用域, 可选
+     * @param openId       用户唯一标识, 可选
+     * @return 返回写入的字节数
+     * @throws IOException 可能产生的I/O异常
+     */
+    public static int write(OutputStream output, String accessToken, long expiresIn, String refreshToken, String scope, String openId) throws IOException {
+        Buffer _buffer = __BUFFER.get();
+        encode(_buffer, accessToken, expiresIn, refreshToken, scope, openId);
+        output.write(_buffer.data, 0, _buffer.length);
+        return _buffer.length;
+    }
+
+    /**
+     * @return 返回按固定结构编码的JSON字符串(主要用于调试及对照)
+     */
+    public static String toJSONString(String accessToken, long expiresIn, String refreshToken, String scope, String openId) {
+        Buffer _buffer = new Buffer();
+        encode(_buffer, accessToken, expiresIn, refreshToken, scope, openId);
+        try {
+            return new String(_buffer.data, 0, _buffer.length, "UTF-8");
+        } catch (java.io.UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static void encode(Buffer buffer, String accessToken, long expiresIn, String refreshToken, String scope, String openId) {
+        buffer.length = 0;
+        buffer.append('{');
+        boolean _first = __field(buffer, OAuth.OAUTH_ACCESS_TOKEN, accessToken, true);
+        buffer.append(_first ? "\"" : ",\"").append(OAuth.OAUTH_EXPIRES_IN).append("\":").append(expiresIn);
+        __field(buffer, OAuth.OAUTH_REFRESH_TOKEN, refreshToken, false);
+        __field(buffer, OAuth.OAUTH_SCOPE, scope, false);
+        __field(buffer, IOAuth.Const.OPEN_ID, openId, false);
+        buffer.append('}');
+    }
+
+    private static boolean __field(Buffer buffer, String name, String value, boolean first) {
+        if (value == null || value.length() == 0) {
+            return first;
+        }
+        buffer.append(first ? "\"" : ",\"").append(name).append("\":");
+        __string(buffer, value);
+        return false;
+    }
+
+    /**
+     * 写入带双引号的JSON字符串, 转义引号、反斜线及控制字符, 其余字符按UTF-8编码
+     */
+    private static void __string(Buffer buffer, String value) {
+        buffer.append('"');
+        for (int _idx = 0, _len = value.length(); _idx < _len; _idx++) {
+            char _c = value.charAt(_idx);
+            if (_c == '"' || _c == '\\') {
+                buffer.append('\\').append(_c);
+            } else if (_c < 0x20) {
+                switch (_c) {
+                    case '\b':
+                        buffer.append('\\').append('b');
+                        break;
+                    case '\f':
+                        buffer.append('\\').append('f');
+                        break;
+                    case '\n':
+                        buffer.append('\\').append('n');
+                        break;
+                    case '\r':
+                        buffer.append('\\').append('r');
+                        break;
+                    case '\t':
+                        buffer.append('\\').append('t');
+                        break;
+                    default:
+                        buffer.append("\\u00").appendByte(__HEX[_c >> 4]).appendByte(__HEX[_c & 0xf]);
+                }
+            } else if (_c < 0x80) {
+                buffer.append(_c);
+            } else if (_c < 0x800) {
+                buffer.appendByte((byte) (0xc0 | (_c >> 6))).appendByte((byte) (0x80 | (_c & 0x3f)));
+            } else if (Character.isHighSurrogate(_c) && _idx + 1 < _len && Character.isLowSurrogate(value.charAt(_idx + 1))) {
+                int _cp = Character.toCodePoint(_c, value.charAt(++_idx));
+                buffer.appendByte((byte) (0xf0 | (_cp >> 18)))
+                        .appendByte((byte) (0x80 | ((_cp >> 12) & 0x3f)))
+                        .appendByte((byte) (0x80 | ((_cp >> 6) & 0x3f)))
+                        .appendByte((byte) (0x80 | (_cp & 0x3f)));
+            } else if (_c >= Character.MIN_SURROGATE && _c <= Character.MAX_SURROGATE) {
+                // 不成对的代理字符无法编码, 与String.getBytes("UTF-8")一致替换为'?'
+                buffer.append('?');
+            } else {
+                buffer.appendByte((byte) (0xe0 | (_c >> 12)))
+                        .appendByte((byte) (0x80 | ((_c >> 6) & 0x3f)))
+                        .appendByte((byte) (0x80 | (_c & 0x3f)));
+            }
+        }
+        buffer.append('"');
+    }
+
+    /**
+     * 可复用的字节缓冲区
+     */
+    static final class Buffer {
+
+        byte[] data = new byte[256];
+
+        int length;
+
+        private void __ensure(int extra) {
+            if (length + extra > data.length) {
+                byte[] _data = new byte[Math.max(data.length << 1, length + extra)];
+                System.arraycopy(data, 0, _data, 0, length);
+                data = _data;
+            }
+        }
+
+        Buffer appendByte(byte b) {
+            __ensure(1);
+            data[length++] = b;
+            return this;
+        }
+
+        /**
+         * 仅用于ASCII字符
+         */
+        Buffer append(char c) {
+            return appendByte((byte) c);
+        }
+
+        /**
+         * 仅用于ASCII字符串
+         */
+        Buffer append(String str) {
+            int _len = str.length();
+            __ensure(_len);
+            for (int _idx = 0; _idx < _len; _idx++) {
+                data[length++] = (byte) str.charAt(_idx);
+            }
+            return this;
+        }
+
+        Buffer append(long value) {
+            return append(String.valueOf(value));
+        }
+    }
+}
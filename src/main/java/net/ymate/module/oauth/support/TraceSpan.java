@@ -0,0 +1,180 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.support;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 追踪片段, 标识格式与W3C Trace Context及OpenTelemetry一致(追踪标识32位、片段标识16位十六进制字符串);
+ * 片段仅供创建它的线程(或通过{@link Tracer#wrap(java.util.concurrent.Callable)}传递后的线程)使用, 非线程安全
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/06/07 上午10:20
+ * @version 1.0
+ */
+public class TraceSpan {
+
+    /**
+     * 未启用追踪或当前请求未被采样时使用的空片段, 其全部方法均不做任何处理
+     */
+    public static final TraceSpan NOOP = new TraceSpan(null, null, null, null, null, null);
+
+    public static final String STATUS_OK = "OK";
+
+    public static final String STATUS_ERROR = "ERROR";
+
+    private final Tracer __tracer;
+
+    private final TraceSpan __parent;
+
+    private final String __traceId;
+
+    private final String __spanId;
+
+    private final String __parentSpanId;
+
+    private final String __name;
+
+    private final long __startTime;
+
+    private final long __startNanos;
+
+    private long __duration;
+
+    private Map<String, String> __attributes;
+
+    private String __status = STATUS_OK;
+
+    private boolean __ended;
+
+    private boolean __step;
+
+    TraceSpan(Tracer tracer, TraceSpan parent, String traceId, String spanId, String parentSpanId, String name) {
+        __tracer = tracer;
+        __parent = parent;
+        __traceId = traceId;
+        __spanId = spanId;
+        __parentSpanId = parentSpanId;
+        __name = name;
+        __startTime = System.currentTimeMillis() * 1000000L;
+        __startNanos = System.nanoTime();
+    }
+
+    /**
+     * @return 是否为实际记录的片段(非{@link #NOOP})
+     */
+    public boolean isRecording() {
+        return __tracer != null;
+    }
+
+    /**
+     * @param key   属性名称
+     * @param value 属性值, 为null时忽略
+     * @return 返回当前片段
+     */
+    public TraceSpan setAttribute(String key, String value) {
+        if (__tracer != null && value != null) {
+            if (__attributes == null) {
+                __attributes = new LinkedHashMap<String, String>();
+            }
+            __attributes.put(key, value);
+        }
+        return this;
+    }
+
+    /**
+     * 标记片段失败
+     *
+     * @param error 错误代码或描述
+     * @return 返回当前片段
+     */
+    public TraceSpan setError(String error) {
+        if (__tracer != null) {
+            __status = STATUS_ERROR;
+            setAttribute("error", error);
+        }
+        return this;
+    }
+
+    /**
+     * 结束片段并交由导出器输出, 当前线程的活动片段恢复为其父片段; 重复调用时忽略
+     */
+    public void end() {
+        if (__tracer != null && !__ended) {
+            __ended = true;
+            __duration = System.nanoTime() - __startNanos;
+            __tracer.onEnd(this);
+        }
+    }
+
+    TraceSpan getParent() {
+        return __parent;
+    }
+
+    boolean isStep() {
+        return __step;
+    }
+
+    void markStep() {
+        __step = true;
+    }
+
+    public boolean isEnded() {
+        return __ended;
+    }
+
+    public String getTraceId() {
+        return __traceId;
+    }
+
+    public String getSpanId() {
+        return __spanId;
+    }
+
+    /**
+     * @return 返回父片段标识, 根片段返回null或上游传入的片段标识
+     */
+    public String getParentSpanId() {
+        return __parentSpanId;
+    }
+
+    public String getName() {
+        return __name;
+    }
+
+    /**
+     * @return 返回开始时间, 单位(纳秒, 自1970-01-01起, 精度为毫秒)
+     */
+    public long getStartTime() {
+        return __startTime;
+    }
+
+    /**
+     * @return 返回片段耗时, 单位(纳秒), 未结束时返回0
+     */
+    public long getDuration() {
+        return __duration;
+    }
+
+    public String getStatus() {
+        return __status;
+    }
+
+    public Map<String, String> getAttributes() {
+        return __attributes == null ? Collections.<String, String>emptyMap() : Collections.unmodifiableMap(__attributes);
+    }
+}
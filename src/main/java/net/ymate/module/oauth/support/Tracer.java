@@ -0,0 +1,243 @@
+/*
+ * Copyright 2007-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ymate.module.oauth.support;
+
+import net.ymate.module.oauth.IOAuthSpanExporter;
+
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+/**
+ * 请求追踪器, 以线程变量维护当前活动片段: 请求入口通过{@link #startTrace(String, String)}创建根片段(兼容W3C traceparent请求头,
+ * 可延续上游追踪), 其后{@link #startSpan(String)}创建的片段自动成为当前活动片段的子片段, {@link #step(String)}创建的步骤片段持续至下一步骤开始或请求结束;
+ * 未配置导出器、当前请求未被采样或当前线程无活动片段时均返回{@link TraceSpan#NOOP}, 开销仅为一次线程变量读取
+ *
+ * @author 刘镇 (suninformation@163.com) on 2017/06/07 上午11:00
+ * @version 1.0
+ */
+public class Tracer {
+
+    /**
+     * W3C Trace Context请求头名称
+     */
+    public static final String TRACEPARENT = "traceparent";
+
+    private static final char[] __HEX = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<Random> __RANDOM = new ThreadLocal<Random>() {
+        @Override
+        protected Random initialValue() {
+            return new Random();
+        }
+    };
+
+    private final ThreadLocal<TraceSpan> __current = new ThreadLocal<TraceSpan>();
+
+    private final IOAuthSpanExporter __exporter;
+
+    private final double __sampleRatio;
+
+    /**
+     * @param exporter    追踪片段导出器, 为null表示不启用
+     * @param sampleRatio 未携带上游采样标记的请求的采样比例(0 - 1)
+     */
+    public Tracer(IOAuthSpanExporter exporter, double sampleRatio) {
+        __exporter = exporter;
+        __sampleRatio = Math.max(0, Math.min(1, sampleRatio));
+    }
+
+    public boolean isEnabled() {
+        return __exporter != null;
+    }
+
+    private static String __randomId(int bytes) {
+        Random _random = __RANDOM.get();
+        char[] _chars = new char[bytes * 2];
+        boolean _zero = true;
+        for (int _idx = 0; _idx < _chars.length; _idx++) {
+            int _value = _random.nextInt(16);
+            _zero &= _value == 0;
+            _chars[_idx] = __HEX[_value];
+        }
+        if (_zero) {
+            _chars[_chars.length - 1] = '1';
+        }
+        return new String(_chars);
+    }
+
+    private static boolean __isHex(String value, int start, int end) {
+        boolean _zero = true;
+        for (int _idx = start; _idx < end; _idx++) {
+            char _c = value.charAt(_idx);
+            if (!(_c >= '0' && _c <= '9' || _c >= 'a' && _c <= 'f')) {
+                return false;
+            }
+            _zero &= _c == '0';
+        }
+        return !_zero;
+    }
+
+    /**
+     * 开始新的请求追踪并将根片段设为当前活动片段, 当前线程遗留的未结束片段将被丢弃
+     *
+     * @param name        根片段名称
+     * @param traceparent 上游传入的W3C traceparent请求头(格式: 00-追踪标识-片段标识-采样标记), 可以为空
+     * @return 返回根片段, 未启用或未被采样时返回{@link TraceSpan#NOOP}
+     */
+    public TraceSpan startTrace(String name, String traceparent) {
+        __current.remove();
+        if (__exporter == null) {
+            return TraceSpan.NOOP;
+        }
+        String _traceId = null;
+        String _parentSpanId = null;
+        boolean _sampled;
+        if (traceparent != null && traceparent.length() == 55 && traceparent.startsWith("00-")
+                && traceparent.charAt(35) == '-' && traceparent.charAt(52) == '-'
+                && __isHex(traceparent, 3, 35) && __isHex(traceparent, 36, 52)) {
+            _traceId = traceparent.substring(3, 35);
+            _parentSpanId = traceparent.substring(36, 52);
+            _sampled = (Character.digit(traceparent.charAt(54), 16) & 1) == 1;
+        } else {
+            _sampled = __sampleRatio >= 1 || __sampleRatio > 0 && __RANDOM.get().nextDouble() < __sampleRatio;
+        }
+        if (!_sampled) {
+            return TraceSpan.NOOP;
+        }
+        TraceSpan _span = new TraceSpan(this, null, _traceId != null ? _traceId : __randomId(16), __randomId(8), _parentSpanId, name);
+        __current.set(_span);
+        return _span;
+    }
+
+    /**
+     * @param name 片段名称
+     * @return 返回当前活动片段的子片段并将其设为当前活动片段, 当前线程无活动片段时返回{@link TraceSpan#NOOP}
+     */
+    public TraceSpan startSpan(String name) {
+        if (__exporter == null) {
+            return TraceSpan.NOOP;
+        }
+        TraceSpan _parent = __current.get();
+        if (_parent == null) {
+            return TraceSpan.NOOP;
+        }
+        TraceSpan _span = new TraceSpan(this, _parent, _parent.getTraceId(), __randomId(8), _parent.getSpanId(), name);
+        __current.set(_span);
+        return _span;
+    }
+
+    /**
+     * 结束当前步骤片段(若当前活动片段为步骤片段)并开始新的步骤片段, 适用于按顺序执行的请求处理步骤
+     *
+     * @param name 步骤名称
+     * @return 返回新的步骤片段, 当前线程无活动片段时返回{@link TraceSpan#NOOP}
+     */
+    public TraceSpan step(String name) {
+        if (__exporter == null) {
+            return TraceSpan.NOOP;
+        }
+        TraceSpan _current = __current.get();
+        if (_current != null && _current.isStep()) {
+            _current.end();
+        }
+        TraceSpan _span = startSpan(name);
+        if (_span.isRecording()) {
+            _span.markStep();
+        }
+        return _span;
+    }
+
+    /**
+     * @return 返回当前活动片段, 无活动片段时返回{@link TraceSpan#NOOP}
+     */
+    public TraceSpan current() {
+        TraceSpan _span = __current.get();
+        return _span != null ? _span : TraceSpan.NOOP;
+    }
+
+    /**
+     * @return 返回当前请求的根片段, 无活动片段时返回{@link TraceSpan#NOOP}
+     */
+    public TraceSpan root() {
+        TraceSpan _span = __current.get();
+        if (_span == null) {
+            return TraceSpan.NOOP;
+        }
+        while (_span.getParent() != null) {
+            _span = _span.getParent();
+        }
+        return _span;
+    }
+
+    /**
+     * 依次结束当前活动片段至根片段(含未结束的步骤片段)并清除当前线程的活动片段
+     *
+     * @param error 错误代码, 不为null时记录为根片段的oauth.error属性
+     */
+    public void endTrace(String error) {
+        TraceSpan _span = __current.get();
+        if (_span == null) {
+            return;
+        }
+        while (_span.getParent() != null) {
+            _span.end();
+            _span = _span.getParent();
+        }
+        _span.setAttribute("oauth.error", error);
+        _span.end();
+        __current.remove();
+    }
+
+    /**
+     * 包装待提交至其它线程执行的任务, 使其中创建的片段成为当前活动片段的子片段
+     *
+     * @param callable 任务
+     * @param <T>      任务返回值类型
+     * @return 返回包装后的任务, 当前线程无活动片段时返回原任务
+     */
+    public <T> Callable<T> wrap(final Callable<T> callable) {
+        final TraceSpan _parent = __current.get();
+        if (_parent == null) {
+            return callable;
+        }
+        return new Callable<T>() {
+            public T call() throws Exception {
+                TraceSpan _previous = __current.get();
+                __current.set(_parent);
+                try {
+                    return callable.call();
+                } finally {
+                    if (_previous != null) {
+                        __current.set(_previous);
+                    } else {
+                        __current.remove();
+                    }
+                }
+            }
+        };
+    }
+
+    void onEnd(TraceSpan span) {
+        if (__current.get() == span) {
+            if (span.getParent() != null) {
+                __current.set(span.getParent());
+            } else {
+                __current.remove();
+            }
+        }
+        __exporter.export(span);
+    }
+}